@@ -0,0 +1,44 @@
+package org.hydev.agent;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// [V] 被 CallCountingTransformer 插桩的方法在开头调用 hit(id).
+// [V] 必须是 public 的：调用它的是其他包中的目标类.
+public final class CallCounter {
+    // [V] id 由 sipush 压栈，必须小于 32768；实际只需要为每个目标类的 equals / hashCode 各分配一个.
+    private static final int MAX_IDS = 4096;
+    // [V] 计数器预先全部创建好，hit() 读数组时不存在发布的问题；LongAdder 在多线程同时调用时几乎不会竞争.
+    private static final LongAdder[] COUNTS = new LongAdder[MAX_IDS];
+    private static final Map<String, Integer> IDS = new HashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < MAX_IDS; i++) COUNTS[i] = new LongAdder();
+    }
+
+    private CallCounter() {
+        throw new AssertionError("工具类不应该被实例化. ");
+    }
+
+    public static void hit(int id) {
+        COUNTS[id].increment();
+    }
+
+    // 同一个名字总是得到同一个 id，所以重新转换（retransform）同一个类不会重复登记；id 用完时返回 -1.
+    static synchronized int register(String name) {
+        Integer id = IDS.get(name);
+        if (id != null) return id;
+        if (NAMES.size() == MAX_IDS) return -1;
+
+        NAMES.add(name);
+        IDS.put(name, NAMES.size() - 1);
+        return NAMES.size() - 1;
+    }
+
+    static synchronized Map<String, Long> counts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < NAMES.size(); i++) counts.put(NAMES.get(i), COUNTS[i].sum());
+        return counts;
+    }
+}
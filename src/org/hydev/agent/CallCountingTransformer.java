@@ -0,0 +1,285 @@
+package org.hydev.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.ProtectionDomain;
+import java.util.Set;
+
+// [V] 在目标类自己声明的 equals(Object) 和 hashCode() 开头插入一次 CallCounter.hit(id)，统计精确的调用次数.
+// [V] 不引入 ASM，直接按 JVMS 第 4 章改写 class 文件：
+// [V] 1. 在常量池末尾追加 CallCounter.hit(I)V 的 Methodref；
+// [V] 2. 在方法体开头插入 sipush id; invokestatic hit; nop; nop 共 8 字节. 跳转都是相对偏移，不受影响；
+// [V]    8 是 4 的倍数，tableswitch / lookupswitch 的对齐填充也不变；
+// [V] 3. 异常表、LineNumberTable、LocalVariableTable、LocalVariableTypeTable 中的 pc 都加 8；
+// [V]    StackMapTable 中只有第一帧的 offset_delta 是绝对位置，只调整它.
+// [V] Code 中含有其他属性（例如带 pc 的类型注解）的方法不改写，宁可少统计，也不生成错误的 class 文件.
+// [V] 插入的 8 字节会让方法体变大，可能影响 JIT 的内联决策，所以插桩后的耗时会略高于真实情况.
+final class CallCountingTransformer implements ClassFileTransformer {
+    private static final int INSERTED = 8;
+    private static final String COUNTER = CallCounter.class.getName().replace('.', '/');
+
+    private final Set<String> targets;
+
+    CallCountingTransformer(Set<String> targets) {
+        this.targets = targets;
+    }
+
+    // 只插桩这两个方法；equals 的重载（例如 equals(PhoneNumber)）不算.
+    static boolean isTarget(String name, String descriptor) {
+        return name.equals("equals") && descriptor.equals("(Ljava/lang/Object;)Z")
+                || name.equals("hashCode") && descriptor.equals("()I");
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+        if (className == null || !targets.contains(className.replace('/', '.')) || !seesCounter(loader))
+            return null;
+        try {
+            return rewrite(className.replace('/', '.'), classfileBuffer);
+        } catch (RuntimeException e) {
+            // [V] 转换器抛出的异常会被 JVM 吞掉，这里打印出来，类保持原样.
+            System.err.println("HashAgent: cannot instrument " + className + ": " + e);
+            return null;
+        }
+    }
+
+    // [V] 引导类加载器，以及看不到 agent 类的隔离类加载器中的类，插桩后会在调用 hit() 时抛出 NoClassDefFoundError.
+    private static boolean seesCounter(ClassLoader loader) {
+        if (loader == null) return false;
+        try {
+            return Class.forName(CallCounter.class.getName(), false, loader) == CallCounter.class;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // 没有可以插桩的方法时返回 null，表示不修改.
+    private static byte[] rewrite(String className, byte[] classfile) {
+        ByteBuffer in = ByteBuffer.wrap(classfile);
+        if (in.getInt() != 0xCAFEBABE) return null;
+        in.position(8);
+        int poolCount = u2(in);
+        if (poolCount + 6 > 0xFFFF) return null;
+
+        String[] utf8 = new String[poolCount];
+        for (int i = 1; i < poolCount; i++) {
+            int tag = in.get();
+            switch (tag) {
+                case 1: // Utf8；只用来和 ASCII 的名字比较，不必严格解码 modified UTF-8.
+                    byte[] bytes = new byte[u2(in)];
+                    in.get(bytes);
+                    utf8[i] = new String(bytes, StandardCharsets.UTF_8);
+                    break;
+                case 7: case 8: case 16: case 19: case 20: // Class、String、MethodType、Module、Package
+                    skip(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(in, 3);
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    skip(in, 4);
+                    break;
+                case 5: case 6: // Long、Double 占两个槽位
+                    skip(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        int poolEnd = in.position();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(classfile.length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.write(classfile, 0, 8);
+            out.writeShort(poolCount + 6);
+            out.write(classfile, 10, poolEnd - 10);
+            out.writeByte(1);
+            out.writeUTF(COUNTER);
+            out.writeByte(7);
+            out.writeShort(poolCount);
+            out.writeByte(1);
+            out.writeUTF("hit");
+            out.writeByte(1);
+            out.writeUTF("(I)V");
+            out.writeByte(12);
+            out.writeShort(poolCount + 2);
+            out.writeShort(poolCount + 3);
+            out.writeByte(10);
+            out.writeShort(poolCount + 1);
+            out.writeShort(poolCount + 4);
+            int methodref = poolCount + 5;
+
+            // access_flags、this_class、super_class、接口和域原样复制.
+            skip(in, 6);
+            skip(in, 2 * u2(in));
+            for (int fields = u2(in); fields > 0; fields--) {
+                skip(in, 6);
+                skipAttributes(in);
+            }
+            out.write(classfile, poolEnd, in.position() - poolEnd);
+
+            boolean changed = false;
+            int methods = u2(in);
+            out.writeShort(methods);
+            for (; methods > 0; methods--) {
+                int access = u2(in), name = u2(in), descriptor = u2(in), attributes = u2(in);
+                out.writeShort(access);
+                out.writeShort(name);
+                out.writeShort(descriptor);
+                out.writeShort(attributes);
+                boolean target = isTarget(utf8[name], utf8[descriptor]);
+
+                for (; attributes > 0; attributes--) {
+                    int attributeName = u2(in), length = in.getInt(), start = in.position();
+                    byte[] code = target && "Code".equals(utf8[attributeName])
+                            ? instrument(classfile, start, utf8, className + "#" + utf8[name], methodref) : null;
+                    out.writeShort(attributeName);
+                    if (code != null) {
+                        out.writeInt(code.length);
+                        out.write(code);
+                        changed = true;
+                    } else {
+                        out.writeInt(length);
+                        out.write(classfile, start, length);
+                    }
+                    in.position(start + length);
+                }
+            }
+
+            out.write(classfile, in.position(), classfile.length - in.position());
+            return changed ? bytes.toByteArray() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 返回改写后的 Code 属性（不含属性名和长度），不能改写时返回 null.
+    private static byte[] instrument(byte[] classfile, int start, String[] utf8, String name, int methodref)
+            throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(classfile);
+        in.position(start);
+        int maxStack = u2(in), maxLocals = u2(in), codeLength = in.getInt(), codeStart = in.position();
+        if (codeLength + INSERTED > 0xFFFF) return null;
+        skip(in, codeLength);
+        int handlers = u2(in), handlersStart = in.position();
+        skip(in, 8 * handlers);
+
+        // [V] 先确认所有属性都认识，再登记 id，避免报告中出现一个永远为 0 的条目.
+        int attributesStart = in.position();
+        for (int attributes = u2(in); attributes > 0; attributes--) {
+            switch (String.valueOf(utf8[u2(in)])) {
+                case "LineNumberTable": case "LocalVariableTable": case "LocalVariableTypeTable": case "StackMapTable":
+                    skip(in, in.getInt());
+                    break;
+                default:
+                    return null;
+            }
+        }
+        int id = CallCounter.register(name);
+        if (id < 0) return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(in.position() - start + 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        // [V] 插入的指令在空操作数栈上压入一个 int，所以 max_stack 至少为 1.
+        out.writeShort(Math.max(maxStack, 1));
+        out.writeShort(maxLocals);
+        out.writeInt(codeLength + INSERTED);
+        out.writeByte(0x11); // sipush
+        out.writeShort(id);
+        out.writeByte(0xb8); // invokestatic
+        out.writeShort(methodref);
+        out.writeByte(0x00); // nop
+        out.writeByte(0x00);
+        out.write(classfile, codeStart, codeLength);
+
+        in.position(handlersStart);
+        out.writeShort(handlers);
+        for (int i = 0; i < handlers; i++) {
+            out.writeShort(u2(in) + INSERTED); // start_pc
+            out.writeShort(u2(in) + INSERTED); // end_pc
+            out.writeShort(u2(in) + INSERTED); // handler_pc
+            out.writeShort(u2(in)); // catch_type
+        }
+
+        in.position(attributesStart);
+        int attributes = u2(in);
+        out.writeShort(attributes);
+        for (; attributes > 0; attributes--) {
+            int attributeName = u2(in), length = in.getInt(), attributeStart = in.position();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(length + 2);
+            DataOutputStream attribute = new DataOutputStream(body);
+            int entries = u2(in);
+            attribute.writeShort(entries);
+            switch (utf8[attributeName]) {
+                case "LineNumberTable": // start_pc、line_number
+                    for (int i = 0; i < entries; i++) {
+                        attribute.writeShort(u2(in) + INSERTED);
+                        attribute.writeShort(u2(in));
+                    }
+                    break;
+                case "LocalVariableTable": case "LocalVariableTypeTable": // start_pc、length、name、descriptor、index
+                    for (int i = 0; i < entries; i++) {
+                        attribute.writeShort(u2(in) + INSERTED);
+                        attribute.write(classfile, in.position(), 8);
+                        skip(in, 8);
+                    }
+                    break;
+                default: // StackMapTable
+                    if (entries > 0) shiftFirstFrame(in, attribute);
+                    break;
+            }
+            attribute.write(classfile, in.position(), attributeStart + length - in.position());
+            in.position(attributeStart + length);
+
+            out.writeShort(attributeName);
+            out.writeInt(body.size());
+            body.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    // [V] 帧类型 0-63 是 same_frame，64-127 是 same_locals_1_stack_item_frame，offset_delta 编码在类型中；
+    // [V] 加 8 之后超过 63 时分别改为 same_frame_extended（251）和 same_locals_1_stack_item_frame_extended（247）.
+    // [V] 247-255 的帧紧跟一个 u2 的 offset_delta. 帧的其余部分不变，由调用方原样复制.
+    private static void shiftFirstFrame(ByteBuffer in, DataOutputStream out) throws IOException {
+        int type = Byte.toUnsignedInt(in.get());
+        if (type < 128) {
+            int base = type < 64 ? 0 : 64;
+            int delta = type - base + INSERTED;
+            if (delta < 64) {
+                out.writeByte(base + delta);
+            } else {
+                out.writeByte(base == 0 ? 251 : 247);
+                out.writeShort(delta);
+            }
+        } else if (type >= 247) {
+            out.writeByte(type);
+            out.writeShort(u2(in) + INSERTED);
+        } else {
+            throw new IllegalArgumentException("Reserved stack map frame type " + type);
+        }
+    }
+
+    private static void skipAttributes(ByteBuffer in) {
+        for (int attributes = u2(in); attributes > 0; attributes--) {
+            skip(in, 2);
+            skip(in, in.getInt());
+        }
+    }
+
+    private static int u2(ByteBuffer in) {
+        return Short.toUnsignedInt(in.getShort());
+    }
+
+    private static void skip(ByteBuffer in, int bytes) {
+        in.position(in.position() + bytes);
+    }
+}
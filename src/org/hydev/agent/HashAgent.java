@@ -0,0 +1,315 @@
+package org.hydev.agent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+// [V] 第 10、11 条的运行时检查：一个可以在启动时（-javaagent）或运行中（attach）加载的 Java agent.
+// [V] 1. 改写指定类的 equals / hashCode 的字节码，精确统计调用次数（见 CallCountingTransformer）；
+// [V] 2. 用 JFR 的 jdk.ExecutionSample 采样，估算这些方法占用的时间：样本数 × 采样间隔，再除以调用次数得到每次调用的耗时；
+// [V] 3. 周期性地检查可达的 HashMap / ConcurrentHashMap：链长、树化的桶、散列码的分布，以及违反 "equals 相等则 hashCode 相等" 的键.
+// [V] 报告追加写入本地文件.
+//
+// [V] JFR 不需要进入安全点就能采样，并且栈中保留了被内联的帧，所以内联进 HashMap#get 的 equals / hashCode 也能归到目标类上.
+// [V] JFR 每个周期只采样有限个正在运行 Java 代码的线程，同时运行的线程很多时，耗时会被低估.
+// [V] 调用次数在加载 agent 之后才开始统计，并且包括 agent 检查散列表时自己对键调用的 equals / hashCode；
+// [V] 运行中加载时，已加载的目标类会被重新转换.
+//
+// [V] 参数以分号分隔，例如：
+// [V]   targets=org.hydev.chapter_3.Item_10$PhoneNumber,org.hydev.chapter_3.Item_10$CaseInsensitivityString;
+// [V]   roots=com.example.Cache;out=hash-report.txt;interval=5000;sample=20
+// [V] roots 是要扫描静态域的类，其他的表可以通过 watch(Map) 登记.
+// [V] 不自动扫描所有已加载的类：读取静态域会触发类的初始化，agent 不应该改变应用的行为.
+//
+// [V] 打包：java -cp out org.hydev.agent.HashAgent jar hash-agent.jar
+// [V] 启动时加载：java -javaagent:hash-agent.jar=targets=... -cp ... Main
+// [V] 运行中加载：java -cp out org.hydev.agent.HashAgent attach <pid> hash-agent.jar "targets=..."
+public final class HashAgent {
+    private static final List<WeakReference<Map<?, ?>>> WATCHED = new CopyOnWriteArrayList<>();
+    // agent 自己的线程 id，采样时跳过.
+    private static final Set<Long> OWN_THREADS = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> targets;
+    private final List<String> roots;
+    private final Path out;
+    private final long interval;
+    private final long sample;
+    private final HashTableInspector inspector = new HashTableInspector();
+    private final Map<String, Long> samples = new ConcurrentHashMap<>();
+    private final Map<String, Long> lookups = new ConcurrentHashMap<>();
+
+    private HashAgent(Map<String, String> options) {
+        this.targets = new HashSet<>(split(options.getOrDefault("targets", "")));
+        this.roots = split(options.getOrDefault("roots", ""));
+        this.out = Path.of(options.getOrDefault("out", "hash-report.txt"));
+        this.interval = Long.parseLong(options.getOrDefault("interval", "5000"));
+        this.sample = Long.parseLong(options.getOrDefault("sample", "20"));
+    }
+
+    public static void premain(String args, Instrumentation inst) {
+        start(args, inst);
+    }
+
+    public static void agentmain(String args, Instrumentation inst) {
+        start(args, inst);
+    }
+
+    // [V] 没有 Instrumentation 时（例如在进程内直接调用），无法自动开放 java.util，需要 --add-opens.
+    public static void start(String args, Instrumentation inst) {
+        Map<String, String> options = new HashMap<>();
+        for (String option : (args == null ? "" : args).split(";")) {
+            int eq = option.indexOf('=');
+            if (eq > 0) options.put(option.substring(0, eq).trim(), option.substring(eq + 1));
+        }
+
+        HashAgent agent = new HashAgent(options);
+        if (inst != null) {
+            Module self = HashAgent.class.getModule();
+            inst.redefineModule(Object.class.getModule(), Set.of(), Map.of(),
+                    Map.of("java.util", Set.of(self), "java.util.concurrent", Set.of(self)), Set.of(), Map.of());
+            if (!agent.targets.isEmpty()) agent.instrument(inst);
+        }
+
+        daemon("hash-agent-sampler", agent::sampleLoop);
+        daemon("hash-agent-reporter", agent::reportLoop);
+    }
+
+    // 登记一个不在静态域中的表；只保存弱引用，不会阻止它被回收.
+    public static void watch(Map<?, ?> map) {
+        WATCHED.add(new WeakReference<>(map));
+    }
+
+    private static void daemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        OWN_THREADS.add(thread.getId());
+        thread.start();
+    }
+
+    private void instrument(Instrumentation inst) {
+        inst.addTransformer(new CallCountingTransformer(targets), true);
+
+        // [V] 运行中加载时目标类可能已经加载，需要重新转换；启动时加载的目标类则在加载时直接被转换.
+        List<Class<?>> loaded = new ArrayList<>();
+        for (Class<?> type : inst.getAllLoadedClasses())
+            if (targets.contains(type.getName()) && inst.isModifiableClass(type)) loaded.add(type);
+        if (loaded.isEmpty()) return;
+        try {
+            inst.retransformClasses(loaded.toArray(new Class<?>[0]));
+        } catch (UnmodifiableClassException | RuntimeException e) {
+            System.err.println("HashAgent: cannot retransform " + loaded + ": " + e);
+        }
+    }
+
+    private static List<String> split(String s) {
+        List<String> parts = new ArrayList<>();
+        for (String part : s.split(","))
+            if (!part.isBlank()) parts.add(part.trim());
+        return parts;
+    }
+
+    private void sampleLoop() {
+        if (targets.isEmpty()) return;
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(sample));
+            stream.onEvent("jdk.ExecutionSample", this::onSample);
+            stream.start();
+        } catch (RuntimeException e) {
+            // [V] 例如运行时没有包含 JFR；调用次数和散列表的检查不受影响.
+            System.err.println("HashAgent: cannot start JFR, time is not estimated: " + e);
+        }
+    }
+
+    private void onSample(RecordedEvent event) {
+        RecordedThread thread = event.getThread("sampledThread");
+        if (thread != null && OWN_THREADS.contains(thread.getJavaThreadId())) return;
+        if (event.getStackTrace() == null) return;
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        if (frames.isEmpty()) return;
+
+        // [V] 只计目标类中最内层的一帧，避免 equals 中调用 hashCode 之类的嵌套被重复计数.
+        // [V] 目标类的其他方法也计入，例如树化的桶中查找时调用的 compareTo，只是没有调用次数.
+        for (RecordedFrame frame : frames) {
+            RecordedMethod method = frame.getMethod();
+            if (targets.contains(method.getType().getName())) {
+                samples.merge(method.getType().getName() + "#" + method.getName(), 1L, Long::sum);
+                break;
+            }
+        }
+
+        // [V] 另外把栈顶位于散列表内部的样本归到调用散列表的那一帧上，找出热点的表.
+        String top = frames.get(0).getMethod().getType().getName();
+        if (top.startsWith("java.util.HashMap") || top.startsWith("java.util.concurrent.ConcurrentHashMap")) {
+            for (RecordedFrame frame : frames) {
+                RecordedMethod method = frame.getMethod();
+                if (!method.getType().getName().startsWith("java.util.")) {
+                    lookups.merge(method.getType().getName() + "#" + method.getName(), 1L, Long::sum);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void reportLoop() {
+        while (true) {
+            try {
+                Thread.sleep(interval);
+                report();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void report() throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            writer.printf("== %s ==%n", LocalDateTime.now());
+            if (!targets.isEmpty()) {
+                writer.printf("target methods (calls of equals / hashCode; JFR sample every %d ms, time ~ samples x interval):%n",
+                        sample);
+                Map<String, Long> calls = CallCounter.counts();
+                Set<String> methods = new TreeSet<>(calls.keySet());
+                methods.addAll(samples.keySet());
+                for (String method : methods) {
+                    Long count = calls.get(method);
+                    long millis = samples.getOrDefault(method, 0L) * sample;
+                    writer.printf("  %-60s %12s calls %8d samples  ~%6d ms  %s%n", method, count == null ? "-" : count,
+                            samples.getOrDefault(method, 0L), millis, count == null || count == 0 || millis == 0 ? ""
+                                    : String.format("~%.1f ns/call", millis * 1e6 / count));
+                }
+
+                writer.printf("hash table lookups by caller (samples with HashMap / ConcurrentHashMap on top):%n");
+                for (Map.Entry<String, Long> entry : new TreeMap<>(lookups).entrySet())
+                    writer.printf("  %-60s %8d samples  ~%6d ms%n", entry.getKey(), entry.getValue(),
+                            entry.getValue() * sample);
+            }
+
+            writer.printf("hash tables:%n");
+            for (Map.Entry<String, Map<?, ?>> entry : tables().entrySet()) {
+                try {
+                    HashTableInspector.Report report = inspector.inspect(entry.getKey(), entry.getValue());
+                    writer.printf("  %s%n", report);
+                    for (String warning : report.warnings())
+                        writer.printf("    WARNING %s%n", warning);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    // [V] 例如 java.util 没有开放（InaccessibleObjectException），或者表在遍历时被并发修改.
+                    writer.printf("  %s: cannot inspect (%s)%n", entry.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private Map<String, Map<?, ?>> tables() {
+        Map<String, Map<?, ?>> tables = new LinkedHashMap<>();
+        for (Class<?> root : rootClasses()) {
+            for (Field field : fieldsOf(root)) {
+                if (!Modifier.isStatic(field.getModifiers())) continue;
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(null);
+                    if (HashTableInspector.isInspectable(value))
+                        tables.put(root.getName() + "." + field.getName(), (Map<?, ?>) value);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    // 无法访问的域直接跳过.
+                }
+            }
+        }
+
+        int n = 0;
+        for (WeakReference<Map<?, ?>> ref : WATCHED) {
+            Map<?, ?> map = ref.get();
+            if (map == null) WATCHED.remove(ref);
+            else if (HashTableInspector.isInspectable(map)) tables.put("watched#" + n++, map);
+        }
+        return tables;
+    }
+
+    private List<Class<?>> rootClasses() {
+        List<Class<?>> classes = new ArrayList<>();
+        for (String root : roots) {
+            try {
+                classes.add(Class.forName(root, false, ClassLoader.getSystemClassLoader()));
+            } catch (ClassNotFoundException e) {
+                // 类不存在时跳过，下一轮再试.
+            }
+        }
+        return classes;
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        try {
+            return type.getDeclaredFields();
+        } catch (LinkageError e) {
+            return new Field[0];
+        }
+    }
+
+    // [V] 把本包编译后的类和清单打成 agent jar；要求本包是从目录（而不是 jar）中加载的.
+    static void writeJar(Path jar) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Premain-Class", HashAgent.class.getName());
+        attributes.putValue("Agent-Class", HashAgent.class.getName());
+        attributes.putValue("Can-Retransform-Classes", "true");
+
+        Path classes;
+        try {
+            classes = Path.of(HashAgent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (Exception e) {
+            throw new IOException("Cannot locate agent classes", e);
+        }
+        String packagePath = HashAgent.class.getPackageName().replace('.', '/');
+
+        try (OutputStream file = Files.newOutputStream(jar);
+             JarOutputStream out = new JarOutputStream(file, manifest);
+             DirectoryStream<Path> entries = Files.newDirectoryStream(classes.resolve(packagePath), "*.class")) {
+            for (Path entry : entries) {
+                out.putNextEntry(new JarEntry(packagePath + "/" + entry.getFileName()));
+                Files.copy(entry, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    // 用法：HashAgent jar <agent.jar>
+    //      HashAgent attach <pid> <agent.jar> [options]
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("jar")) {
+            writeJar(Path.of(args[1]));
+        } else if (args.length >= 3 && args[0].equals("attach")) {
+            com.sun.tools.attach.VirtualMachine vm = com.sun.tools.attach.VirtualMachine.attach(args[1]);
+            try {
+                vm.loadAgent(Path.of(args[2]).toAbsolutePath().toString(), args.length > 3 ? args[3] : "");
+            } finally {
+                vm.detach();
+            }
+        } else {
+            System.err.println("Usage: HashAgent jar <agent.jar> | HashAgent attach <pid> <agent.jar> [options]");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.hydev.agent;
+
+import org.hydev.chapter_3.Item_10;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// [V] 在子 JVM 中以 -javaagent 加载 HashAgent，运行一个故意写坏 hashCode 的负载，然后打印报告：
+// [V] 1. BadKey 的 hashCode 永远返回 42（第 11 条中 "合法但永远不应该使用" 的例子），所有键落在同一个桶中并被树化；
+// [V] 2. Item_10.PhoneNumber 只覆盖了 equals，两个相等的号码都能放进表中；查找时散列码几乎从不相同，
+// [V]    所以报告中 PhoneNumber#equals 的调用次数为 0：查找根本走不到 equals.
+// 用法：HashAgentDemo [seconds]
+public class HashAgentDemo {
+    static final Map<BadKey, Integer> BAD_KEYS = new HashMap<>();
+    static final Map<Item_10.PhoneNumber, String> PHONE_BOOK = new HashMap<>();
+    static final Map<String, Integer> HEALTHY = new ConcurrentHashMap<>();
+
+    static final class BadKey implements Comparable<BadKey> {
+        private final int id;
+
+        BadKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BadKey && ((BadKey) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        // [V] 实现 Comparable 后，树化的桶中查找是 O(log n)；否则退化为遍历整棵树.
+        @Override
+        public int compareTo(BadKey o) {
+            return Integer.compare(id, o.id);
+        }
+
+        @Override
+        public String toString() {
+            return "BadKey#" + id;
+        }
+    }
+
+    // 子 JVM 中运行的负载，直到被父进程结束.
+    static void workload() {
+        for (int i = 0; i < 2_000; i++) {
+            BAD_KEYS.put(new BadKey(i), i);
+            HEALTHY.put("word" + i, i);
+        }
+        PHONE_BOOK.put(new Item_10.PhoneNumber((short) 707, (short) 867, (short) 5309), "Jenny");
+        PHONE_BOOK.put(new Item_10.PhoneNumber((short) 707, (short) 867, (short) 5309), "Jenny");
+
+        long checksum = 0;
+        while (true) {
+            for (int i = 0; i < 2_000; i++) {
+                checksum += BAD_KEYS.get(new BadKey(i));
+                checksum += HEALTHY.get("word" + i);
+                if (PHONE_BOOK.get(new Item_10.PhoneNumber((short) 707, (short) 867, (short) 5309)) != null) checksum++;
+            }
+            if (checksum == 42) System.out.println(checksum);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("workload")) {
+            workload();
+            return;
+        }
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+        Path jar = Files.createTempFile("hash-agent", ".jar");
+        Path report = Files.createTempFile("hash-report", ".txt");
+        try {
+            HashAgent.writeJar(jar);
+            String options = "targets=" + BadKey.class.getName() + "," + Item_10.PhoneNumber.class.getName()
+                    + ";roots=" + HashAgentDemo.class.getName() + ";out=" + report + ";interval=" + seconds * 1000 / 2
+                    // [V] 演示只运行几秒，采样得密一些；生产环境应保留默认的间隔.
+                    + ";sample=10";
+
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            Process child = new ProcessBuilder(java, "-javaagent:" + jar + "=" + options,
+                    "-cp", System.getProperty("java.class.path"), HashAgentDemo.class.getName(), "workload")
+                    .inheritIO().start();
+            Thread.sleep(seconds * 1000L + 500);
+            child.destroy();
+            child.waitFor();
+
+            System.out.print(Files.readString(report));
+        } finally {
+            Files.deleteIfExists(jar);
+            Files.deleteIfExists(report);
+        }
+    }
+}
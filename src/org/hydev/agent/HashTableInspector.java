@@ -0,0 +1,127 @@
+package org.hydev.agent;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// [V] 通过反射读取 HashMap / ConcurrentHashMap 内部的 table，统计散列表的健康状况.
+// [V] 需要 java.util 和 java.util.concurrent 对本包开放：HashAgent 通过 Instrumentation#redefineModule 完成，
+// [V] 否则要在命令行加上 --add-opens java.base/java.util=ALL-UNNAMED 等参数.
+final class HashTableInspector {
+    // [V] 成对调用 equals 的开销是平方级的，所以只检查一部分键.
+    private static final int EQUALS_SAMPLE = 256;
+
+    private final Map<Class<?>, Map<String, Field>> fields = new HashMap<>();
+
+    Report inspect(String name, Map<?, ?> map) throws ReflectiveOperationException {
+        Object[] table = (Object[]) field(map.getClass(), "table").get(map);
+        Report report = new Report(name, map);
+        if (table == null) return report;
+
+        report.capacity = table.length;
+        Set<Integer> hashes = new HashSet<>();
+        List<Object> keys = new ArrayList<>();
+        for (Object bin : table) {
+            if (bin == null) continue;
+
+            Object node = bin;
+            // [V] ConcurrentHashMap 中，散列值为负的是特殊节点：TreeBin（-2）把真正的链表放在 first 域中，
+            // [V] ForwardingNode（-1）说明正在扩容，ReservationNode（-3）是占位节点.
+            int binHash = field(bin.getClass(), "hash").getInt(bin);
+            if (binHash < 0) {
+                if (!bin.getClass().getSimpleName().equals("TreeBin")) continue;
+                report.treeBins++;
+                node = field(bin.getClass(), "first").get(bin);
+            } else if (bin.getClass().getSimpleName().equals("TreeNode")) {
+                // [V] HashMap 在单个桶超过 8 个节点（且容量不小于 64）时，把链表转换为红黑树.
+                report.treeBins++;
+            }
+
+            int length = 0;
+            for (; node != null; node = field(node.getClass(), "next").get(node)) {
+                length++;
+                hashes.add(field(node.getClass(), "hash").getInt(node));
+                Object key = field(node.getClass(), "key").get(node);
+                if (key == null) continue;
+                if (keys.size() < EQUALS_SAMPLE) keys.add(key);
+                report.keyClasses.merge(key.getClass().getName(), 1, Integer::sum);
+            }
+            if (length == 0) continue;
+
+            report.usedBins++;
+            report.maxChain = Math.max(report.maxChain, length);
+        }
+        report.distinctHashes = hashes.size();
+
+        // [V] 同一个表中的两个不同键若 equals 成立，说明它们的 hashCode 不同，违反了 "equals 相等则 hashCode 相等".
+        for (int i = 0; i < keys.size(); i++) {
+            for (int j = i + 1; j < keys.size(); j++) {
+                Object a = keys.get(i), b = keys.get(j);
+                if (a.getClass() == b.getClass() && a.equals(b)) {
+                    report.violations.add(a.getClass().getName() + ": " + a + " equals " + b
+                            + " but hashCode " + a.hashCode() + " != " + b.hashCode());
+                }
+            }
+        }
+        return report;
+    }
+
+    static boolean isInspectable(Object value) {
+        return value instanceof HashMap || value instanceof ConcurrentHashMap;
+    }
+
+    private Field field(Class<?> type, String name) throws NoSuchFieldException {
+        Map<String, Field> byName = fields.computeIfAbsent(type, k -> new HashMap<>());
+        Field field = byName.get(name);
+        if (field != null) return field;
+
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            try {
+                field = c.getDeclaredField(name);
+                field.setAccessible(true);
+                byName.put(name, field);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // 继续在父类中查找.
+            }
+        }
+        throw new NoSuchFieldException(type.getName() + "." + name);
+    }
+
+    static final class Report {
+        final String name;
+        final String type;
+        final int size;
+        int capacity;
+        int usedBins;
+        int maxChain;
+        int treeBins;
+        int distinctHashes;
+        final Map<String, Integer> keyClasses = new TreeMap<>();
+        final List<String> violations = new ArrayList<>();
+
+        Report(String name, Map<?, ?> map) {
+            this.name = name;
+            this.type = map.getClass().getSimpleName();
+            this.size = map.size();
+        }
+
+        // [V] 阈值是经验值：负载因子 0.75 下，正常的链长几乎不会超过 8，这也是 HashMap 树化的阈值.
+        List<String> warnings() {
+            List<String> warnings = new ArrayList<>(violations);
+            if (treeBins > 0)
+                warnings.add(treeBins + " treeified bin(s): keys collide heavily");
+            if (size > 8 && distinctHashes * 4 < size)
+                warnings.add(size + " keys share only " + distinctHashes + " hash code(s), check hashCode()");
+            else if (maxChain > 8)
+                warnings.add("longest chain has " + maxChain + " nodes");
+            return warnings;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s) size=%d capacity=%d usedBins=%d maxChain=%d treeBins=%d distinctHashes=%d keys=%s",
+                    name, type, size, capacity, usedBins, maxChain, treeBins, distinctHashes, keyClasses);
+        }
+    }
+}
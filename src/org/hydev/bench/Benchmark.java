@@ -0,0 +1,13 @@
+package org.hydev.bench;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 标记一个基准方法：public void name(Blackhole bh)，所在的类需要有 public 无参构造器.
+// [V] 每个 fork 创建一个实例，实例域就是基准的状态；状态不要声明为 final，否则可能被 JIT 当作常量折叠.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Benchmark {
+}
@@ -0,0 +1,295 @@
+package org.hydev.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.invoke.*;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// [V] 笔记中各条性能结论的基准测试，以及跨提交的回归检测. 只依赖 JDK，可以离线运行.
+// [V] 做法仿照 JMH：预热迭代 + 测量迭代，Blackhole 吸收结果，每个基准默认在独立的 JVM（fork）中运行，
+// [V] 这样各个基准的 JIT 编译、类型剖析和 GC 状态互不影响. 得分是每次调用的平均耗时（ns/op）.
+// [V] 同一个 fork 中的各次迭代高度相关，差异主要来自 fork 之间（JIT 的决策、内存布局），
+// [V] 所以 t 检验的样本是每个 fork 的均值，而不是所有迭代；至少需要两边各 2 个 fork 才判断回归.
+//
+// [V] 用法：BenchmarkRunner [选项] [正则]            运行名称匹配正则的基准，结果追加到结果文件，并与基准运行比较
+// [V]      BenchmarkRunner compare <base> <head>   比较结果文件中的两次运行（提交号前缀）
+// [V] 选项：--forks N（默认 5，0 表示在当前 JVM 中运行，仅用于调试）、--warmup N（3）、--iterations N（5）、
+// [V]      --time 毫秒（每次迭代，200）、--store 文件（bench-results.jsonl）、--no-store、--baseline 提交号、
+// [V]      --alpha 显著性水平（0.01）、--threshold 最小变化比例（0.05）、--jvm-arg 参数（可重复）、--classes 类名,...
+// [V] 发现回归时退出码为 1，可以直接用在脚本中.
+// [V] 不在 git 仓库中运行时提交号为 unknown，这样的结果无法对应到提交：除非显式给出 --baseline，否则既不保存也不比较.
+public final class BenchmarkRunner {
+    private static final List<String> DEFAULT_CLASSES =
+            List.of("org.hydev.chapter_2.Benchmarks", "org.hydev.chapter_3.Benchmarks");
+    private static final String SAMPLES = "SAMPLES ";
+    private static final String UNKNOWN = "unknown";
+
+    private int forks = 5;
+    private int warmup = 3;
+    private int iterations = 5;
+    private long time = 200;
+    private Path store = Path.of("bench-results.jsonl");
+    private boolean save = true;
+    private String baseline;
+    private double alpha = 0.01;
+    private double threshold = 0.05;
+    private final List<String> jvmArgs = new ArrayList<>();
+    private List<String> classes = DEFAULT_CLASSES;
+    private Pattern filter = Pattern.compile("");
+
+    // [V] 基准方法通过 LambdaMetafactory 绑定为接口实现，调用开销与直接调用相同；
+    // [V] 在 fork 中只有一个实现，测量循环中的调用点是单态的，可以被内联.
+    private interface Workload {
+        void run(Blackhole bh);
+    }
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Throwable {
+        if (args.length == 6 && args[0].equals("--child")) {
+            double[] samples = measure(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                    Long.parseLong(args[5]));
+            StringJoiner joiner = new StringJoiner(",", SAMPLES, "");
+            for (double sample : samples) joiner.add(Double.toString(sample));
+            System.out.println(joiner);
+            return;
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner();
+        List<String> positional = runner.parse(args);
+        boolean regressed;
+        if (!positional.isEmpty() && positional.get(0).equals("compare")) {
+            if (positional.size() != 3)
+                throw new IllegalArgumentException("Usage: BenchmarkRunner compare <base> <head>");
+            ResultStore history = new ResultStore(runner.store);
+            ResultStore.Run base = history.latest(positional.get(1)).orElseThrow(
+                    () -> new IllegalArgumentException("No run for " + positional.get(1)));
+            ResultStore.Run head = history.latest(positional.get(2)).orElseThrow(
+                    () -> new IllegalArgumentException("No run for " + positional.get(2)));
+            regressed = runner.compare(base, head);
+        } else {
+            if (!positional.isEmpty()) runner.filter = Pattern.compile(positional.get(0));
+            regressed = runner.runAll();
+        }
+        if (regressed) System.exit(1);
+    }
+
+    private List<String> parse(String[] args) {
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--forks": forks = Integer.parseInt(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--iterations": iterations = Integer.parseInt(args[++i]); break;
+                case "--time": time = Long.parseLong(args[++i]); break;
+                case "--store": store = Path.of(args[++i]); break;
+                case "--no-store": save = false; break;
+                case "--baseline": baseline = args[++i]; break;
+                case "--alpha": alpha = Double.parseDouble(args[++i]); break;
+                case "--threshold": threshold = Double.parseDouble(args[++i]); break;
+                case "--jvm-arg": jvmArgs.add(args[++i]); break;
+                case "--classes": classes = List.of(args[++i].split(",")); break;
+                default:
+                    if (args[i].startsWith("--")) throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    positional.add(args[i]);
+            }
+        }
+        if (iterations < 1)
+            throw new IllegalArgumentException("At least 1 measurement iteration is needed");
+        return positional;
+    }
+
+    private boolean runAll() throws Throwable {
+        List<Method> benchmarks = new ArrayList<>();
+        for (String name : classes) {
+            List<Method> methods = new ArrayList<>();
+            for (Method method : Class.forName(name).getMethods()) {
+                if (method.isAnnotationPresent(Benchmark.class) && filter.matcher(id(method)).find())
+                    methods.add(method);
+            }
+            methods.sort(Comparator.comparing(Method::getName));
+            benchmarks.addAll(methods);
+        }
+        if (benchmarks.isEmpty()) {
+            System.out.println("No benchmark matches " + filter);
+            return false;
+        }
+
+        System.out.printf("# %d benchmark(s), %d fork(s), %d warmup + %d measurement iterations of %d ms%n",
+                benchmarks.size(), forks, warmup, iterations, time);
+        Map<String, double[][]> scores = new LinkedHashMap<>();
+        for (Method method : benchmarks) {
+            check(method);
+            double[][] samples = forks == 0 ? new double[][]{measure(method.getDeclaringClass().getName(),
+                    method.getName(), warmup, iterations, time)} : fork(method);
+            scores.put(id(method), samples);
+            double[] means = forkMeans(samples);
+            System.out.printf("%-60s %12.3f +- %9.3f ns/op%n", id(method), Statistics.mean(means),
+                    Math.sqrt(Statistics.variance(means)));
+        }
+
+        String[] commit = gitCommit();
+        ResultStore.Run run = new ResultStore.Run(commit[0], Boolean.parseBoolean(commit[1]),
+                Instant.now().truncatedTo(ChronoUnit.SECONDS).toString(), System.getProperty("java.version"), scores);
+        if (run.commit.equals(UNKNOWN) && baseline == null) {
+            System.out.println("# not in a git repository: results are neither stored nor compared (see --baseline)");
+            return false;
+        }
+
+        ResultStore history = new ResultStore(store);
+        Optional<ResultStore.Run> base = baseline != null ? history.latest(baseline)
+                : history.latestOtherThan(run.commit, UNKNOWN);
+        if (save) {
+            history.append(run);
+            System.out.println("# results appended to " + store.toAbsolutePath());
+        }
+        if (base.isEmpty()) {
+            System.out.println("# no baseline run to compare with");
+            return false;
+        }
+        return compare(base.get(), run);
+    }
+
+    // 返回是否存在显著的回归.
+    private boolean compare(ResultStore.Run base, ResultStore.Run head) {
+        System.out.printf("%n# base %s%n# head %s%n", base.label(), head.label());
+        System.out.printf("%-60s %12s %12s %8s %8s%n", "Benchmark", "base", "head", "change", "p");
+        boolean regressed = false;
+        for (Map.Entry<String, double[][]> entry : head.benchmarks.entrySet()) {
+            double[][] baseSamples = base.benchmarks.get(entry.getKey());
+            if (baseSamples == null) continue;
+            double[] before = forkMeans(baseSamples);
+            double[] after = forkMeans(entry.getValue());
+
+            double change = Statistics.mean(after) / Statistics.mean(before) - 1;
+            // [V] 任一边只有一个 fork 时无法估计 fork 之间的方差，只报告变化，不做判断.
+            double p = before.length < 2 || after.length < 2 ? Double.NaN : Statistics.welchPValue(before, after);
+            // [V] 只有统计上显著（p < alpha）且幅度足够大（超过 threshold）的变化才算数：
+            // [V] 样本很多时，微小的系统性偏差（例如 CPU 频率）也会显著，但没有意义.
+            String verdict = Double.isNaN(p) ? "(too few forks)" : "";
+            if (p < alpha && Math.abs(change) > threshold) {
+                verdict = change > 0 ? "REGRESSION" : "improvement";
+                regressed |= change > 0;
+            }
+            System.out.printf("%-60s %12.3f %12.3f %+7.1f%% %8.4f %s%n", entry.getKey(), Statistics.mean(before),
+                    Statistics.mean(after), change * 100, p, verdict);
+        }
+        return regressed;
+    }
+
+    private static double[] forkMeans(double[][] samples) {
+        double[] means = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) means[i] = Statistics.mean(samples[i]);
+        return means;
+    }
+
+    private double[][] fork(Method method) throws IOException, InterruptedException {
+        double[][] all = new double[forks][];
+        for (int fork = 0; fork < forks; fork++) {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmArgs);
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), BenchmarkRunner.class.getName(),
+                    "--child", method.getDeclaringClass().getName(), method.getName(),
+                    Integer.toString(warmup), Integer.toString(iterations), Long.toString(time)));
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+            double[] samples = null;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith(SAMPLES)) continue;
+                    samples = Arrays.stream(line.substring(SAMPLES.length()).split(","))
+                            .mapToDouble(Double::parseDouble).toArray();
+                }
+            }
+            if (process.waitFor() != 0 || samples == null)
+                throw new IllegalStateException(id(method) + ": fork " + fork + " failed");
+
+            all[fork] = samples;
+        }
+        return all;
+    }
+
+    private static double[] measure(String className, String methodName, int warmup, int iterations, long millis)
+            throws Throwable {
+        Class<?> type = Class.forName(className);
+        Workload workload = bind(type, methodName, type.getDeclaredConstructor().newInstance());
+        Blackhole bh = new Blackhole();
+        long nanos = millis * 1_000_000;
+
+        // [V] 每批调用多次再读一次时钟，避免 System.nanoTime 本身（约 20 ns）淹没短小的基准.
+        long batch = 1;
+        while (batch < 1 << 30) {
+            long start = System.nanoTime();
+            for (long i = 0; i < batch; i++) workload.run(bh);
+            if (System.nanoTime() - start > nanos / 100) break;
+            batch *= 2;
+        }
+
+        for (int i = 0; i < warmup; i++) iteration(workload, bh, batch, nanos);
+        double[] samples = new double[iterations];
+        for (int i = 0; i < iterations; i++) samples[i] = iteration(workload, bh, batch, nanos);
+        return samples;
+    }
+
+    private static double iteration(Workload workload, Blackhole bh, long batch, long nanos) {
+        long ops = 0, elapsed;
+        long start = System.nanoTime();
+        do {
+            for (long i = 0; i < batch; i++) workload.run(bh);
+            ops += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return (double) elapsed / ops;
+    }
+
+    private static Workload bind(Class<?> type, String methodName, Object instance) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType signature = MethodType.methodType(void.class, Blackhole.class);
+        MethodHandle target = lookup.findVirtual(type, methodName, signature);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "run", MethodType.methodType(Workload.class, type),
+                signature, target, signature);
+        return (Workload) site.getTarget().invoke(instance);
+    }
+
+    private static void check(Method method) {
+        if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() != void.class
+                || !Arrays.equals(method.getParameterTypes(), new Class<?>[]{Blackhole.class}))
+            throw new IllegalArgumentException(id(method) + " must be a public void instance method taking Blackhole");
+    }
+
+    private static String id(Method method) {
+        return method.getDeclaringClass().getName() + "." + method.getName();
+    }
+
+    // [V] 返回 {提交号, 工作区是否有未提交的修改}；不在 git 仓库中时提交号为 unknown.
+    private static String[] gitCommit() {
+        try {
+            String head = git("rev-parse", "--short", "HEAD");
+            String status = git("status", "--porcelain", "--untracked-files=no");
+            return new String[]{head.isEmpty() ? UNKNOWN : head, Boolean.toString(!status.isEmpty())};
+        } catch (IOException | InterruptedException e) {
+            return new String[]{UNKNOWN, "false"};
+        }
+    }
+
+    private static String git(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        return process.waitFor() == 0 ? output : "";
+    }
+}
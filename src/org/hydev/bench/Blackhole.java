@@ -0,0 +1,43 @@
+package org.hydev.bench;
+
+// [V] 吸收基准的结果，防止 JIT 把没有被使用的计算当作死代码消除（与 JMH 的 Blackhole 思路相同）.
+// [V] 每个 consume 都与 volatile 域比较，JIT 无法证明条件永远不成立，所以必须算出参数；而条件实际上永远不成立.
+public final class Blackhole {
+    private volatile int i1 = 1, i2 = 2;
+    private volatile long l1 = 1, l2 = 2;
+    private volatile boolean b1 = false, b2 = true;
+    private volatile double d1 = 1, d2 = 2;
+
+    // [V] 对象无法用同样的方式比较，这里偶尔（间隔越来越长）把它写入域中，让对象逃逸.
+    private volatile Object sink;
+    private int seed = (int) System.nanoTime();
+    private int mask = 1;
+
+    Blackhole() {
+    }
+
+    public void consume(int value) {
+        if (value == i1 & value == i2) i1 = value;
+    }
+
+    public void consume(long value) {
+        if (value == l1 & value == l2) l1 = value;
+    }
+
+    public void consume(boolean value) {
+        if (value == b1 & value == b2) b1 = value;
+    }
+
+    public void consume(double value) {
+        if (value == d1 & value == d2) d1 = value;
+    }
+
+    public void consume(Object value) {
+        int next = seed * 1664525 + 1013904223;
+        seed = next;
+        if ((next & mask) == 0) {
+            sink = value;
+            mask = (mask << 1) + 1;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.hydev.bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// [V] 结果文件所需的最小 JSON 读写：对象解析为 LinkedHashMap，数组为 ArrayList，数字统一为 Double.
+final class Json {
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.value();
+        json.skipSpaces();
+        if (json.pos != text.length()) throw json.error("Trailing characters");
+        return value;
+    }
+
+    // [V] 与 org.hydev.metrics 中的同名方法相同；基准工具不依赖被测的指标库.
+    static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    private Object value() {
+        skipSpaces();
+        if (pos >= text.length()) throw error("Unexpected end");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                return number();
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        pos++;
+        skipSpaces();
+        if (peek('}')) return object;
+        do {
+            skipSpaces();
+            String key = string();
+            skipSpaces();
+            expect(':');
+            object.put(key, value());
+            skipSpaces();
+        } while (peek(','));
+        expect('}');
+        return object;
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipSpaces();
+        if (peek(']')) return array;
+        do {
+            array.add(value());
+            skipSpaces();
+        } while (peek(','));
+        expect(']');
+        return array;
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder s = new StringBuilder();
+        while (true) {
+            if (pos >= text.length()) throw error("Unterminated string");
+            char c = text.charAt(pos++);
+            if (c == '"') return s.toString();
+            if (c != '\\') {
+                s.append(c);
+                continue;
+            }
+            char escape = text.charAt(pos++);
+            switch (escape) {
+                case 'b': s.append('\b'); break;
+                case 'f': s.append('\f'); break;
+                case 'n': s.append('\n'); break;
+                case 'r': s.append('\r'); break;
+                case 't': s.append('\t'); break;
+                case 'u':
+                    s.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: s.append(escape);
+            }
+        }
+    }
+
+    private Double number() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) pos++;
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Bad number");
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos)) throw error("Bad literal");
+        pos += word.length();
+        return value;
+    }
+
+    private boolean peek(char c) {
+        if (pos < text.length() && text.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) throw error("Expected '" + c + "'");
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + pos);
+    }
+}
@@ -0,0 +1,124 @@
+package org.hydev.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// [V] 历史结果保存为 JSON Lines：每行一次运行，只追加不修改，便于合并和用其他工具分析.
+// [V] 按 fork 分组保存每次迭代的原始样本，而不是均值和误差，之后才能对任意两次运行做 t 检验.
+final class ResultStore {
+    private final Path path;
+
+    ResultStore(Path path) {
+        this.path = path;
+    }
+
+    List<Run> load() throws IOException {
+        List<Run> runs = new ArrayList<>();
+        if (!Files.exists(path)) return runs;
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            try {
+                runs.add(Run.fromJson(Json.parse(line)));
+            } catch (RuntimeException e) {
+                throw new IOException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return runs;
+    }
+
+    void append(Run run) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(run.toJson());
+            writer.newLine();
+        }
+    }
+
+    // 最近一次提交号以 prefix 开头的运行.
+    Optional<Run> latest(String prefix) throws IOException {
+        List<Run> runs = load();
+        for (int i = runs.size() - 1; i >= 0; i--)
+            if (runs.get(i).commit.startsWith(prefix)) return Optional.of(runs.get(i));
+        return Optional.empty();
+    }
+
+    // 最近一次提交号不在 commits 中的运行，作为默认的比较基准.
+    Optional<Run> latestOtherThan(String... commits) throws IOException {
+        List<String> excluded = List.of(commits);
+        List<Run> runs = load();
+        for (int i = runs.size() - 1; i >= 0; i--)
+            if (!excluded.contains(runs.get(i).commit)) return Optional.of(runs.get(i));
+        return Optional.empty();
+    }
+
+    static final class Run {
+        final String commit;
+        final boolean dirty;
+        final String time;
+        final String java;
+        // 基准名 -> 每个 fork 中每次迭代的得分（ns/op）.
+        final Map<String, double[][]> benchmarks;
+
+        Run(String commit, boolean dirty, String time, String java, Map<String, double[][]> benchmarks) {
+            this.commit = commit;
+            this.dirty = dirty;
+            this.time = time;
+            this.java = java;
+            this.benchmarks = benchmarks;
+        }
+
+        String label() {
+            return commit + (dirty ? "+dirty" : "") + " @ " + time;
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"commit\":").append(Json.quote(commit))
+                    .append(",\"dirty\":").append(dirty)
+                    .append(",\"time\":").append(Json.quote(time))
+                    .append(",\"java\":").append(Json.quote(java))
+                    .append(",\"unit\":\"ns/op\",\"benchmarks\":{");
+            String separator = "";
+            for (Map.Entry<String, double[][]> entry : benchmarks.entrySet()) {
+                json.append(separator).append(Json.quote(entry.getKey())).append(":[");
+                double[][] forks = entry.getValue();
+                for (int f = 0; f < forks.length; f++) {
+                    json.append(f > 0 ? ",[" : "[");
+                    for (int i = 0; i < forks[f].length; i++) {
+                        if (i > 0) json.append(',');
+                        json.append(forks[f][i]);
+                    }
+                    json.append(']');
+                }
+                json.append(']');
+                separator = ",";
+            }
+            return json.append("}}").toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        static Run fromJson(Object value) {
+            Map<String, Object> json = (Map<String, Object>) value;
+            Map<String, double[][]> benchmarks = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) json.get("benchmarks")).entrySet()) {
+                List<Object> forks = (List<Object>) entry.getValue();
+                double[][] samples = new double[forks.size()][];
+                for (int f = 0; f < samples.length; f++) {
+                    List<Object> list = (List<Object>) forks.get(f);
+                    samples[f] = new double[list.size()];
+                    for (int i = 0; i < samples[f].length; i++) samples[f][i] = (Double) list.get(i);
+                }
+                benchmarks.put(entry.getKey(), samples);
+            }
+            return new Run((String) json.get("commit"), Boolean.TRUE.equals(json.get("dirty")),
+                    (String) json.get("time"), (String) json.get("java"), benchmarks);
+        }
+    }
+}
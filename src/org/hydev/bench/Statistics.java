@@ -0,0 +1,87 @@
+package org.hydev.bench;
+
+// [V] Welch t 检验：两组样本的方差不必相等，适合比较两次运行的结果.
+// [V] p 值由 t 分布的累积分布函数得到，它可以写成正则化不完全 Beta 函数：P(|T| > t) = I_{df/(df+t²)}(df/2, 1/2).
+// [V] 数值方法参考 Numerical Recipes 第 6 章（Lanczos 近似的 lnΓ，连分式求不完全 Beta 函数）.
+final class Statistics {
+    private Statistics() {
+        throw new AssertionError("工具类不应该被实例化. ");
+    }
+
+    static double mean(double[] samples) {
+        double sum = 0;
+        for (double sample : samples) sum += sample;
+        return sum / samples.length;
+    }
+
+    // 样本方差（除以 n - 1）.
+    static double variance(double[] samples) {
+        if (samples.length < 2) return 0;
+        double mean = mean(samples), sum = 0;
+        for (double sample : samples) sum += (sample - mean) * (sample - mean);
+        return sum / (samples.length - 1);
+    }
+
+    // 双侧 p 值：两组样本均值相等的假设下，观察到至少这样大差异的概率.
+    // [V] 检验假设样本相互独立；同一个 JVM 中的各次迭代并不独立，应当传入每个 fork 的均值.
+    static double welchPValue(double[] a, double[] b) {
+        if (a.length < 2 || b.length < 2) return 1;
+        double va = variance(a) / a.length, vb = variance(b) / b.length;
+        double diff = mean(b) - mean(a);
+        if (va + vb == 0) return diff == 0 ? 1 : 0;
+
+        double t = diff / Math.sqrt(va + vb);
+        double df = (va + vb) * (va + vb)
+                / (va * va / (a.length - 1) + vb * vb / (b.length - 1));
+        return incompleteBeta(df / (df + t * t), df / 2, 0.5);
+    }
+
+    static double incompleteBeta(double x, double a, double b) {
+        if (x <= 0) return 0;
+        if (x >= 1) return 1;
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b)
+                + a * Math.log(x) + b * Math.log(1 - x));
+        // [V] 连分式在 x < (a + 1) / (a + b + 2) 时收敛得快，否则利用对称性 I_x(a, b) = 1 - I_{1-x}(b, a).
+        if (x < (a + 1) / (a + b + 2)) return front * betaFraction(x, a, b) / a;
+        return 1 - front * betaFraction(1 - x, b, a) / b;
+    }
+
+    private static double betaFraction(double x, double a, double b) {
+        final double tiny = 1e-300;
+        double c = 1, d = 1 - (a + b) * x / (a + 1);
+        if (Math.abs(d) < tiny) d = tiny;
+        d = 1 / d;
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 + aa * d;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = 1 + aa / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            h *= d * c;
+
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 + aa * d;
+            if (Math.abs(d) < tiny) d = tiny;
+            c = 1 + aa / c;
+            if (Math.abs(c) < tiny) c = tiny;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-12) break;
+        }
+        return h;
+    }
+
+    private static double logGamma(double x) {
+        final double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x, tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) series += coefficient / ++y;
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,174 @@
+package org.hydev.chapter_2;
+
+import org.hydev.bench.Benchmark;
+import org.hydev.bench.Blackhole;
+import org.hydev.metrics.Counter;
+import org.hydev.metrics.Histogram;
+import org.hydev.metrics.Metrics;
+
+import java.lang.ref.Cleaner;
+import java.util.regex.Pattern;
+
+// [V] 第 2 章各条中性能结论的基准，由 org.hydev.bench.BenchmarkRunner 运行.
+// [V] 放在本包中，是为了直接使用包级私有的 FinalNutritionFacts、Item_7.Stack 等类.
+// [V] 状态都是非 final 的实例域，防止 JIT 把输入当作常量，在编译期算出结果.
+// [V] FinalNutritionFacts 是 Item_2.java 中的辅助类，这里有意直接使用.
+@SuppressWarnings({"deprecation", "removal", "BooleanConstructorCall", "auxiliaryclass"})
+public class Benchmarks {
+    // 第 6 条中判断罗马数字的正则表达式.
+    private static final String ROMAN = "^(?=.)M*(C[MD]|D?C{0,3})(X[CL]|L?X{0,3})(I[XV]|V?I{0,3})$";
+    private static final Pattern ROMAN_PATTERN = Pattern.compile(ROMAN);
+
+    // [V] 所有对象共用一个 Cleaner；Item_8 中的 Room 每个实例都创建一个 Cleaner（即一个线程），代价远比这里高.
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final Runnable NO_OP = () -> {
+    };
+
+    // [V] 与 Item_7、Item_8 中的埋点写法相同：指标关闭时只剩一次对常量 Metrics.ENABLED 的判断.
+    private static final Counter COUNTER = Metrics.counter("bench.counter");
+    private static final Histogram HISTOGRAM = Metrics.histogram("bench.histogram.nanos");
+
+    private boolean flag = true;
+    private int servingSize = 240, servings = 8, calories = 100, sodium = 35, carbohydrate = 27;
+    private String numeral = "MCMLXXVI";
+    private int count = 1_000;
+    private int pushes = 1_000;
+    private Object element = new Object();
+    private long nanos = 1_234;
+
+    private final Item_2 item2 = new Item_2();
+    private final Item_7 item7 = new Item_7();
+    private Item_7.Stack grownStack = item7.new Stack();
+
+    public Benchmarks() {
+        // [V] 预先扩容，item7ReusedStack 中不再发生复制.
+        for (int i = 0; i < pushes; i++) grownStack.push(element);
+        for (int i = 0; i < pushes; i++) grownStack.pop();
+    }
+
+    // 第 1 条：静态工厂可以返回缓存的实例，无需创建对象.
+    @Benchmark
+    public void item1StaticFactory(Blackhole bh) {
+        bh.consume(Boolean.valueOf(flag));
+    }
+
+    @Benchmark
+    public void item1Constructor(Blackhole bh) {
+        bh.consume(new Boolean(flag));
+    }
+
+    // 第 2 条：Builder 多创建了一个对象，也多了几次方法调用.
+    @Benchmark
+    public void item2Telescoping(Blackhole bh) {
+        bh.consume(item2.new NutritionFacts(servingSize, servings, calories, 0, sodium, carbohydrate));
+    }
+
+    @Benchmark
+    public void item2Builder(Blackhole bh) {
+        bh.consume(new FinalNutritionFacts.Builder(servingSize, servings)
+                .calories(calories).sodium(sodium).carbohydrate(carbohydrate).build());
+    }
+
+    // 第 6 条：String.matches 每次都编译一个 Pattern.
+    @Benchmark
+    public void item6StringMatches(Blackhole bh) {
+        bh.consume(numeral.matches(ROMAN));
+    }
+
+    @Benchmark
+    public void item6ReusedPattern(Blackhole bh) {
+        bh.consume(ROMAN_PATTERN.matcher(numeral).matches());
+    }
+
+    // 第 6 条：变量声明为 Long 时，每次累加都会装箱；得分是 count 次累加的总耗时.
+    @Benchmark
+    public void item6BoxedSum(Blackhole bh) {
+        // noinspection WrapperTypeMayBePrimitive
+        Long sum = 0L;
+        for (int i = 0; i < count; i++) sum += i;
+        bh.consume(sum);
+    }
+
+    @Benchmark
+    public void item6PrimitiveSum(Blackhole bh) {
+        long sum = 0L;
+        for (int i = 0; i < count; i++) sum += i;
+        bh.consume(sum);
+    }
+
+    // 第 7 条：从默认容量开始压入 pushes 个元素，包含所有扩容时的数组复制.
+    @Benchmark
+    public void item7StackGrowth(Blackhole bh) {
+        Item_7.Stack stack = item7.new Stack();
+        for (int i = 0; i < pushes; i++) stack.push(element);
+        for (int i = 0; i < pushes; i++) bh.consume(stack.pop());
+    }
+
+    @Benchmark
+    public void item7ReusedStack(Blackhole bh) {
+        Item_7.Stack stack = grownStack;
+        for (int i = 0; i < pushes; i++) stack.push(element);
+        for (int i = 0; i < pushes; i++) bh.consume(stack.pop());
+    }
+
+    // 第 8 条：创建并关闭一个资源；分别不使用安全网、以 Cleaner 作为安全网、使用终结方法.
+    @Benchmark
+    public void item8Plain(Blackhole bh) {
+        Resource resource = new Resource();
+        resource.close();
+        bh.consume(resource);
+    }
+
+    @Benchmark
+    public void item8Cleaner(Blackhole bh) {
+        Resource resource = new Resource();
+        Cleaner.Cleanable cleanable = CLEANER.register(resource, NO_OP);
+        resource.close();
+        cleanable.clean();
+        bh.consume(resource);
+    }
+
+    @Benchmark
+    public void item8Finalizer(Blackhole bh) {
+        FinalizableResource resource = new FinalizableResource();
+        resource.close();
+        bh.consume(resource);
+    }
+
+    // 指标埋点的单次开销：分别以默认参数和 --jvm-arg -Dorg.hydev.metrics=true 运行，比较两次的结果.
+    @Benchmark
+    public void metricsCounterIncrement(Blackhole bh) {
+        if (Metrics.ENABLED) COUNTER.increment();
+        bh.consume(element);
+    }
+
+    @Benchmark
+    public void metricsHistogramRecord(Blackhole bh) {
+        if (Metrics.ENABLED) HISTOGRAM.record(nanos);
+        bh.consume(element);
+    }
+
+    // [V] 包含 Item_8 中 Room 的全部代价：每个实例一个 Cleaner 线程、清理时的输出，以及开启指标时的计数、直方图和 JFR 事件.
+    @Benchmark
+    public void metricsRoomCreateClose(Blackhole bh) {
+        Room room = new Room(7);
+        room.close();
+        bh.consume(room);
+    }
+
+    private static class Resource implements AutoCloseable {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static final class FinalizableResource extends Resource {
+        @Override
+        protected void finalize() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.hydev.chapter_2;
+
+import org.hydev.chapter_3.Item_10.PhoneNumber;
+
+import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// [V] 对第 3 条 SerializableElvis 的补充：Java 序列化每个对象都要写出类描述符，既慢又占空间.
+// [V] 这里为每个类注册一个 Codec，流中只写一个 varint 类型编号，基本类型域按 varint 编码.
+public final class BinaryCodec {
+    // [V] 编号即注册顺序；编码端与解码端必须以相同的顺序注册.
+    private final List<Codec<?>> codecs = new ArrayList<>();
+    private final Map<Class<?>, Integer> tags = new IdentityHashMap<>();
+
+    // [V] 单例的 Codec 不写任何域，解码时直接返回唯一实例，作用相当于 readResolve().
+    public static <T> Codec<T> singleton(T instance) {
+        return new Codec<>() {
+            @Override
+            public void write(T value, ByteBuffer buf) {
+            }
+
+            @Override
+            public T read(ByteBuffer buf) {
+                return instance;
+            }
+        };
+    }
+
+    // [V] 枚举只写序数，解码时返回已有的常量，同样保持了单例的身份.
+    public static <E extends Enum<E>> Codec<E> ofEnum(Class<E> enumClass) {
+        E[] constants = enumClass.getEnumConstants();
+        return new Codec<>() {
+            @Override
+            public void write(E value, ByteBuffer buf) {
+                writeVarInt(value.ordinal(), buf);
+            }
+
+            @Override
+            public E read(ByteBuffer buf) {
+                int ordinal = readVarInt(buf);
+                if (ordinal < 0 || ordinal >= constants.length)
+                    throw new IllegalStateException("Unknown ordinal of " + enumClass.getName() + ": " + ordinal);
+                return constants[ordinal];
+            }
+        };
+    }
+
+    public <T> BinaryCodec register(Class<T> type, Codec<? super T> codec) {
+        if (tags.putIfAbsent(type, codecs.size()) != null)
+            throw new IllegalArgumentException("Already registered: " + type.getName());
+        codecs.add(codec);
+        return this;
+    }
+
+    // 缓冲区空间不足时抛出 BufferOverflowException，position 回到写入这个对象之前，清空缓冲区后可以重试.
+    // [V] 回滚时直接恢复 position，而不是用 mark()/reset()，以免覆盖调用方自己设置的 mark.
+    @SuppressWarnings("unchecked")
+    public void encode(Object value, ByteBuffer buf) {
+        Integer tag = tags.get(value.getClass());
+        if (tag == null)
+            throw new IllegalArgumentException("No codec for " + value.getClass().getName());
+
+        int start = buf.position();
+        try {
+            writeVarInt(tag, buf);
+            ((Codec<Object>) codecs.get(tag)).write(value, buf);
+        } catch (BufferOverflowException e) {
+            buf.position(start);
+            throw e;
+        }
+    }
+
+    // 从 buf 当前位置读出下一个对象；数据不完整时抛出 BufferUnderflowException，position 回到这个对象的开头，
+    // 读入更多数据后可以重试. 数据损坏时抛出 IllegalStateException.
+    public Object decode(ByteBuffer buf) {
+        int start = buf.position();
+        try {
+            int tag = readVarInt(buf);
+            if (tag < 0 || tag >= codecs.size())
+                throw new IllegalStateException("Unknown tag: " + tag);
+            return codecs.get(tag).read(buf);
+        } catch (BufferUnderflowException e) {
+            buf.position(start);
+            throw e;
+        }
+    }
+
+    // [V] ZigZag 编码，让绝对值小的负数也只占一个字节.
+    public static void writeVarInt(int value, ByteBuffer buf) {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    public static int readVarInt(ByteBuffer buf) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) return (v >>> 1) ^ -(v & 1);
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    public interface Codec<T> {
+        void write(T value, ByteBuffer buf);
+
+        T read(ByteBuffer buf);
+    }
+
+    // [V] 与 ObjectOutputStream / Externalizable 对比每个对象的字节数和编解码吞吐量.
+    // [V] FinalNutritionFacts、SerializableElvis 等是笔记中定义在 Item_2.java、Item_3.java 里的辅助类，这里有意直接使用.
+    @SuppressWarnings("auxiliaryclass")
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        BinaryCodec codec = new BinaryCodec()
+                .register(PhoneNumber.class, PhoneNumber.CODEC)
+                .register(FinalNutritionFacts.class, FinalNutritionFacts.CODEC)
+                .register(SerializableElvis.class, SerializableElvis.CODEC)
+                .register(FinalElvis.class, ofEnum(FinalElvis.class));
+
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (i & 3) {
+                case 0:
+                    values[i] = new PhoneNumber((short) (i % 1000), (short) (i % 999), (short) (i % 10000));
+                    break;
+                case 1:
+                    values[i] = new FinalNutritionFacts.Builder(240, 8).calories(i % 500).sodium(35).build();
+                    break;
+                case 2:
+                    values[i] = SerializableElvis.getInstance();
+                    break;
+                default:
+                    values[i] = FinalElvis.INSTANCE;
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(count * 32);
+        for (int round = 0; round < 5; round++) {
+            buf.clear();
+            long start = System.nanoTime();
+            for (Object value : values) codec.encode(value, buf);
+            long encoded = System.nanoTime() - start;
+
+            buf.flip();
+            int bytes = buf.remaining();
+            start = System.nanoTime();
+            for (int i = 0; buf.hasRemaining(); i++) {
+                Object value = codec.decode(buf);
+                if ((i & 3) >= 2 && value != values[i])
+                    throw new AssertionError("Singleton identity lost: " + value);
+            }
+            long decoded = System.nanoTime() - start;
+
+            report("BinaryCodec", count, bytes, encoded, decoded);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                for (Object value : values) {
+                    out.writeObject(value);
+                    // [V] 不 reset 的话，后续相同的单例只写一个句柄，对比就不公平了.
+                    out.reset();
+                }
+            }
+            long encoded = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                for (int i = 0; i < count; i++) in.readObject();
+            }
+            long decoded = System.nanoTime() - start;
+            report("ObjectOutputStream", count, bytes.size(), encoded, decoded);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                for (Object value : values) {
+                    if (value instanceof PhoneNumber)
+                        out.writeObject(new PhoneNumber.Externalized((PhoneNumber) value));
+                    else if (value instanceof FinalNutritionFacts)
+                        out.writeObject(new FinalNutritionFacts.Externalized((FinalNutritionFacts) value));
+                    else out.writeObject(value);
+                    out.reset();
+                }
+            }
+            long encoded = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                for (int i = 0; i < count; i++) in.readObject();
+            }
+            long decoded = System.nanoTime() - start;
+            report("Externalizable", count, bytes.size(), encoded, decoded);
+        }
+    }
+
+    private static void report(String name, int count, int bytes, long encodeNanos, long decodeNanos) {
+        System.out.printf("%-20s %6.2f bytes/obj, encode %8.2f Mobj/s, decode %8.2f Mobj/s%n", name,
+                (double) bytes / count, count * 1e3 / encodeNanos, count * 1e3 / decodeNanos);
+    }
+}
@@ -1,6 +1,11 @@
 package org.hydev.chapter_2;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 // 第 2 条：遇到多个构造器参数时要考虑使用构建器.
@@ -48,7 +53,69 @@ public class Item_2 {
 }
 
 @SuppressWarnings("FieldCanBeLocal")
-class FinalNutritionFacts {
+class FinalNutritionFacts implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // [V] BinaryCodec 的编解码器，解码时同样经过 Builder，不绕过构造器的检查.
+    static final BinaryCodec.Codec<FinalNutritionFacts> CODEC = new BinaryCodec.Codec<>() {
+        @Override
+        public void write(FinalNutritionFacts value, ByteBuffer buf) {
+            BinaryCodec.writeVarInt(value.servingSize, buf);
+            BinaryCodec.writeVarInt(value.servings, buf);
+            BinaryCodec.writeVarInt(value.calories, buf);
+            BinaryCodec.writeVarInt(value.fat, buf);
+            BinaryCodec.writeVarInt(value.sodium, buf);
+            BinaryCodec.writeVarInt(value.carbohydrate, buf);
+        }
+
+        @Override
+        public FinalNutritionFacts read(ByteBuffer buf) {
+            Builder builder = new Builder(BinaryCodec.readVarInt(buf), BinaryCodec.readVarInt(buf));
+            builder.calories = BinaryCodec.readVarInt(buf);
+            builder.fat = BinaryCodec.readVarInt(buf);
+            builder.sodium = BinaryCodec.readVarInt(buf);
+            builder.carbohydrate = BinaryCodec.readVarInt(buf);
+            return builder.build();
+        }
+    };
+
+    // [V] 仅用于 BinaryCodec 中的对比：手写 writeExternal 直接写出各个域，读取时同样经过 Builder.
+    static final class Externalized implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private FinalNutritionFacts value;
+
+        public Externalized() {
+        }
+
+        Externalized(FinalNutritionFacts value) {
+            this.value = value;
+        }
+
+        FinalNutritionFacts get() {
+            return value;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(value.servingSize);
+            out.writeInt(value.servings);
+            out.writeInt(value.calories);
+            out.writeInt(value.fat);
+            out.writeInt(value.sodium);
+            out.writeInt(value.carbohydrate);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            Builder builder = new Builder(in.readInt(), in.readInt());
+            builder.calories = in.readInt();
+            builder.fat = in.readInt();
+            builder.sodium = in.readInt();
+            builder.carbohydrate = in.readInt();
+            value = builder.build();
+        }
+    }
+
     // 注意，这些域都是 final 的.
     private final int servingSize;
     private final int servings;
@@ -147,7 +214,6 @@ abstract class Pizza {
 }
 
 class NyPizza extends Pizza {
-    @SuppressWarnings("FieldCanBeLocal")
     // size 是子类 Pizza 中特有的域，同样被委托给 Builder 的构造器.
     private final Size size;
 
@@ -158,6 +224,10 @@ class NyPizza extends Pizza {
         size = builder.size;
     }
 
+    Size size() {
+        return size;
+    }
+
     public static void main(String[] args) {
         NyPizza nyPizza = new NyPizza.Builder(Size.SMALL)
                 .addTopping(Topping.SAUSAGE).addTopping(Topping.ONION).build();
@@ -184,3 +254,102 @@ class NyPizza extends Pizza {
         }
     }
 }
+
+// [V] 只追加的 Pizza 订单索引：订单编号即追加顺序，每种 Topping 和每种 NyPizza.Size 各有一个 RoaringBitmap.
+// [V] 查询只在位图上做逐字的 AND / OR / ANDNOT，不保存也不访问订单对象.
+// [V] 例如 "所有加了 HAM 和 ONION 但没有 PEPPER 的 MEDIUM NyPizza"：
+// [V]   index.withSize(MEDIUM).and(index.withTopping(HAM)).and(index.withTopping(ONION))
+// [V]        .andNot(index.withTopping(PEPPER)).cardinality()
+// [V] Pizza 和 NyPizza 是辅助类，不应在其他源文件中访问，所以索引也放在 Item_2.java 中.
+final class PizzaOrderIndex {
+    private final RoaringBitmap[] toppings = new RoaringBitmap[Pizza.Topping.values().length];
+    private final RoaringBitmap[] sizes = new RoaringBitmap[NyPizza.Size.values().length];
+    private final RoaringBitmap all = new RoaringBitmap();
+    private int orders = 0;
+
+    PizzaOrderIndex() {
+        for (int i = 0; i < toppings.length; i++) toppings[i] = new RoaringBitmap();
+        for (int i = 0; i < sizes.length; i++) sizes[i] = new RoaringBitmap();
+    }
+
+    // 返回订单编号.
+    int append(Pizza pizza) {
+        if (orders == Integer.MAX_VALUE)
+            throw new IllegalStateException("Index is full");
+
+        int id = orders++;
+        all.append(id);
+        for (Pizza.Topping topping : pizza.toppings)
+            toppings[topping.ordinal()].append(id);
+        if (pizza instanceof NyPizza)
+            sizes[((NyPizza) pizza).size().ordinal()].append(id);
+        return id;
+    }
+
+    int size() {
+        return orders;
+    }
+
+    // [V] 以下返回的是索引内部的位图，只能作为运算的操作数；运算结果才是独立的只读位图.
+    RoaringBitmap all() {
+        return all;
+    }
+
+    RoaringBitmap withTopping(Pizza.Topping topping) {
+        return toppings[topping.ordinal()];
+    }
+
+    RoaringBitmap withSize(NyPizza.Size size) {
+        return sizes[size.ordinal()];
+    }
+
+    // 用法：PizzaOrderIndex [orders] [--index-only]
+    // [V] 1 亿个订单的 List<Pizza> 需要数 GB 的堆，此时可以只构建索引.
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        boolean indexOnly = args.length > 1 && "--index-only".equals(args[1]);
+
+        Random random = new Random(42);
+        Pizza.Topping[] allToppings = Pizza.Topping.values();
+        NyPizza.Size[] allSizes = NyPizza.Size.values();
+
+        PizzaOrderIndex index = new PizzaOrderIndex();
+        List<Pizza> list = indexOnly ? null : new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            NyPizza.Builder builder = new NyPizza.Builder(allSizes[random.nextInt(allSizes.length)]);
+            for (Pizza.Topping topping : allToppings) {
+                if (random.nextInt(10) < 3) builder.addTopping(topping);
+            }
+            NyPizza pizza = builder.build();
+            index.append(pizza);
+            if (list != null) list.add(pizza);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int indexed = index.withSize(NyPizza.Size.MEDIUM)
+                    .and(index.withTopping(Pizza.Topping.HAM))
+                    .and(index.withTopping(Pizza.Topping.ONION))
+                    .andNot(index.withTopping(Pizza.Topping.PEPPER))
+                    .cardinality();
+            long bitmap = System.nanoTime() - start;
+
+            if (list == null) {
+                System.out.printf("bitmap %8.2f ms (%d matches)%n", bitmap / 1e6, indexed);
+                continue;
+            }
+
+            start = System.nanoTime();
+            long streamed = list.stream()
+                    .filter(p -> p instanceof NyPizza && ((NyPizza) p).size() == NyPizza.Size.MEDIUM)
+                    .filter(p -> p.toppings.contains(Pizza.Topping.HAM) && p.toppings.contains(Pizza.Topping.ONION))
+                    .filter(p -> !p.toppings.contains(Pizza.Topping.PEPPER))
+                    .count();
+            long stream = System.nanoTime() - start;
+
+            if (streamed != indexed)
+                throw new AssertionError(streamed + " != " + indexed);
+            System.out.printf("bitmap %8.2f ms, stream %8.2f ms (%d matches)%n", bitmap / 1e6, stream / 1e6, indexed);
+        }
+    }
+}
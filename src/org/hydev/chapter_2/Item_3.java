@@ -37,9 +37,16 @@ class Elvis {
 class SerializableElvis implements Serializable {
     private static final SerializableElvis INSTANCE = new SerializableElvis();
 
+    // [V] BinaryCodec 的单例编解码器，解码时同样返回 INSTANCE，与 readResolve() 保持一致.
+    static final BinaryCodec.Codec<SerializableElvis> CODEC = BinaryCodec.singleton(INSTANCE);
+
     private SerializableElvis() {
     }
 
+    static SerializableElvis getInstance() {
+        return INSTANCE;
+    }
+
     // 但如果 Singleton 是可序列化的，必须将所有域变为瞬时（transient）的，且提供 readResolve() 方法.
     private Object readResolve() {
         return INSTANCE;
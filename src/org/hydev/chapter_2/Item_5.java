@@ -7,21 +7,35 @@ public class Item_5 {
     // "拼写检查器" 依赖 "词典"，所以应有一种方式，将依赖传递进去.
     @SuppressWarnings("InnerClassMayBeStatic")
     public class SpellChecker {
-        @SuppressWarnings("FieldCanBeLocal")
         private final Dictionary<String, Integer> dictionary;
 
         // 在构造器中传入依赖.
         public SpellChecker(Dictionary<String, Integer> dictionary) {
             this.dictionary = dictionary;
         }
+
+        // [V] 词典中没有该单词时返回 null.
+        public Integer lookup(String word) {
+            return dictionary.get(word);
+        }
+
+        // [V] 批量查询：只获取一次词典的锁（Hashtable 的每次 get 都要加锁），在同一遍中查完整批单词.
+        public void lookupAll(String[] words, Integer[] results, int count) {
+            synchronized (dictionary) {
+                for (int i = 0; i < count; i++)
+                    results[i] = dictionary.get(words[i]);
+            }
+        }
     }
 
     // 另一种变体是，把资源工厂传递给构造器.
     // Java 8 增加的接口 Supplier 适合表示工厂.
     // Mosaic create(Supplier<? extends Tile> tileFactory) { ... }
+    // [V] 完整的实现见 Mosaic，其中还有一个每个工作线程各持有一个工厂的并行版本.
 
     // 依赖注入往往会使大型项目凌乱不堪，此时可借助依赖注入框架.
     // Dagger: https://developer.android.google.cn/training/dependency-injection/dagger-android
     // Guice: https://github.com/google/guice
     // Spring: https://spring.io/
+    // [V] 不依赖反射的编译期注入器见 org.hydev.inject 包.
 }
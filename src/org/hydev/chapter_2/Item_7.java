@@ -1,10 +1,19 @@
 package org.hydev.chapter_2;
 
+import org.hydev.metrics.Counter;
+import org.hydev.metrics.Events;
+import org.hydev.metrics.Histogram;
+import org.hydev.metrics.Metrics;
+
 import java.util.Arrays;
 import java.util.EmptyStackException;
 
 // 第 7 条：消除过期的对象引用.
 public class Item_7 {
+    // [V] Stack 扩容的指标，见 org.hydev.metrics.
+    private static final Counter STACK_GROWTHS = Metrics.counter("item7.stack.growths");
+    private static final Histogram STACK_COPY_NANOS = Metrics.histogram("item7.stack.copy.nanos");
+
     // 相比 C++，尽管 Java 中具有垃圾回收功能，但也可能造成内存泄露.
     @SuppressWarnings("InnerClassMayBeStatic")
     class Stack {
@@ -28,11 +37,50 @@ public class Item_7 {
 
         // 及时增长栈容量，确保新元素的存放.
         private void ensureCapacity() {
-            if (elements.length == size)
+            if (elements.length == size) {
+                long start = Metrics.ENABLED ? System.nanoTime() : 0L;
                 elements = Arrays.copyOf(elements, 2 * size + 1);
+                if (Metrics.ENABLED) recordGrowth(size, elements.length, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static void recordGrowth(int oldCapacity, int newCapacity, long nanos) {
+        STACK_GROWTHS.increment();
+        STACK_COPY_NANOS.record(nanos);
+
+        Events.StackGrowth event = new Events.StackGrowth();
+        if (event.shouldCommit()) {
+            event.oldCapacity = oldCapacity;
+            event.newCapacity = newCapacity;
+            event.commit();
         }
     }
 
+    // [V] 扩容埋点对 push 的影响：分别以 -Dorg.hydev.metrics=true 和默认参数运行，比较两次的耗时.
+    // [V] 扩容只在容量翻倍时发生，埋点的代价被摊到大量 push 上，所以两次结果几乎相同；这并不说明埋点本身便宜.
+    // [V] 每次操作都会执行的埋点（计数器、直方图、Room 的创建和关闭）见 Benchmarks 中的 metrics* 基准.
+    public static void main(String[] args) {
+        int pushes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Item_7 item = new Item_7();
+        Object element = new Object();
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                Stack stack = item.new Stack();
+                for (int j = 0; j < pushes; j++) stack.push(element);
+                for (int j = 0; j < pushes; j++) stack.pop();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("metrics %s: %.2f ns/push%n", Metrics.ENABLED ? "enabled" : "disabled",
+                best / (100.0 * pushes));
+        if (Metrics.ENABLED) Metrics.writeText(System.out);
+    }
+
     // 上述程序中，并没有很明显的错误，但它隐藏着一个问题；不严格地讲，这段程序有一个 "内存泄露".
     // 如果一个栈先是增长，然后再收缩；那么从栈中弹出的元素，不会被当做垃圾回收，因为栈内部维护者对这些对象的 "过期引用".
 
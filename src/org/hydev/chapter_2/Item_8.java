@@ -1,5 +1,10 @@
 package org.hydev.chapter_2;
 
+import org.hydev.metrics.Counter;
+import org.hydev.metrics.Events;
+import org.hydev.metrics.Histogram;
+import org.hydev.metrics.Metrics;
+
 import java.lang.ref.Cleaner;
 
 // 第 8 条：避免使用终结方法.
@@ -43,17 +48,44 @@ public class Item_8 {
 
 // [V] Room 引用了其内部资源 State.
 class Room implements AutoCloseable {
+    // [V] 区分由 close() 和由 Cleaner 完成的清理；后者越多，说明越多的 Room 没有被正确关闭.
+    private static final Counter CREATED = Metrics.counter("item8.room.created");
+    private static final Counter CLEANED_BY_CLOSE = Metrics.counter("item8.room.cleaned.close");
+    private static final Counter CLEANED_BY_CLEANER = Metrics.counter("item8.room.cleaned.cleaner");
+    private static final Histogram LIFETIME_NANOS = Metrics.histogram("item8.room.lifetime.nanos");
+
+    static {
+        Metrics.gauge("item8.room.live", () -> CREATED.sum() - CLEANED_BY_CLOSE.sum() - CLEANED_BY_CLEANER.sum());
+    }
+
+    // [V] Room 引用 State 没有问题，只要 State 不反过来引用 Room.
+    private final State state;
     private final Cleaner.Cleanable cleanable;
 
     public Room(int numJunkPiles) {
-        State state = new State(numJunkPiles);
+        this.state = new State(numJunkPiles);
+        if (Metrics.ENABLED) CREATED.increment();
 
         // [V] 当 this 被垃圾回收时，执行 state 中的 run() 方法.
         this.cleanable = Cleaner.create().register(this, state);
     }
 
+    private static void recordCleanup(boolean byClose, long lifetime) {
+        (byClose ? CLEANED_BY_CLOSE : CLEANED_BY_CLEANER).increment();
+        LIFETIME_NANOS.record(lifetime);
+
+        Events.RoomCleanup event = new Events.RoomCleanup();
+        if (event.shouldCommit()) {
+            event.byClose = byClose;
+            event.lifetime = lifetime;
+            event.commit();
+        }
+    }
+
     @Override
     public void close() {
+        if (Metrics.ENABLED) state.byClose = true;
+
         // [V] 在 close 时释放内部资源 State.
         cleanable.clean();
     }
@@ -63,9 +95,13 @@ class Room implements AutoCloseable {
     // 同样地，也不建议使用 lambda，因为它们很容易捕捉到对外围对象的引用.
     private static class State implements Runnable {
         int numJunkPiles;
+        // [V] 仅在开启指标时使用.
+        final long created;
+        volatile boolean byClose;
 
         State(int numJunkPiles) {
             this.numJunkPiles = numJunkPiles;
+            this.created = Metrics.ENABLED ? System.nanoTime() : 0L;
         }
 
         @Override
@@ -73,6 +109,7 @@ class Room implements AutoCloseable {
         public void run() {
             System.out.println("Cleaning room... ");
             this.numJunkPiles = 0;
+            if (Metrics.ENABLED) recordCleanup(byClose, System.nanoTime() - created);
         }
     }
 }
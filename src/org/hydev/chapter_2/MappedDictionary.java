@@ -0,0 +1,271 @@
+package org.hydev.chapter_2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// [V] 第 5 条 SpellChecker 所依赖的词典，直接从内存映射的快照文件中查询.
+// [V] 打开快照只需映射文件并检查文件头，耗时与词典大小无关；词典数据留在页缓存中，而不在堆上.
+//
+// [V] 文件格式（大端序）：
+// [V]   头部 32 字节：magic "EJDS"、version、count、slotCount、dataOffset、dataLength、crc32、保留字段.
+// [V]   索引：slotCount（2 的幂）个 (int 散列值, int 偏移 + 1) 的开放寻址散列表，线性探测，偏移为 0 表示空槽.
+// [V]   数据：每个 entry 为 unsigned short 键长度、键的 UTF-8 字节、int 值；偏移相对于 dataOffset.
+// [V] 散列值在键的 UTF-8 字节上计算，所以查询时不需要先构造 String 再比较.
+// [V] crc32 覆盖索引和数据. 单个 MappedByteBuffer 最大 2 GB，超过时需要分段映射.
+public final class MappedDictionary extends Dictionary<String, Integer> {
+    private static final int MAGIC = 0x454A4453;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final int mask;
+    private final int dataOffset;
+    private final int dataLength;
+    private final int crc32;
+
+    private MappedDictionary(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+            throw new IOException("Not a dictionary snapshot");
+        if (buf.getInt(4) != VERSION)
+            throw new IOException("Unsupported snapshot version: " + buf.getInt(4));
+
+        this.count = buf.getInt(8);
+        int slotCount = buf.getInt(12);
+        this.mask = slotCount - 1;
+        this.dataOffset = buf.getInt(16);
+        this.dataLength = buf.getInt(20);
+        this.crc32 = buf.getInt(24);
+
+        if (count < 0 || slotCount <= count || Integer.bitCount(slotCount) != 1
+                || dataOffset != HEADER_SIZE + 8L * slotCount || (long) dataOffset + dataLength != buf.capacity())
+            throw new IOException("Corrupted snapshot header");
+    }
+
+    // 只检查文件头；需要确认数据完整时再调用 verify().
+    public static MappedDictionary open(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            // [V] 映射建立之后，关闭 channel 不影响映射的有效性.
+            return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void write(Map<String, Integer> entries, Path snapshot) throws IOException {
+        int n = entries.size();
+        // [V] 装载因子不超过 0.5，线性探测的平均探测次数接近 1.
+        int slotCount = Integer.highestOneBit(Math.max(n, 1) * 2 - 1) << 1;
+
+        long dataLength = 0;
+        for (String key : entries.keySet()) {
+            int length = key.getBytes(StandardCharsets.UTF_8).length;
+            if (length > 0xFFFF)
+                throw new IllegalArgumentException("Key too long: " + key);
+            dataLength += 2 + length + 4;
+        }
+        if (HEADER_SIZE + 8L * slotCount + dataLength > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Snapshot larger than 2 GB");
+
+        ByteBuffer index = ByteBuffer.allocate(8 * slotCount);
+        ByteBuffer data = ByteBuffer.allocate((int) dataLength);
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            int hash = hash(key);
+            int slot = hash & (slotCount - 1);
+            while (index.getInt(8 * slot + 4) != 0) slot = (slot + 1) & (slotCount - 1);
+
+            index.putInt(8 * slot, hash).putInt(8 * slot + 4, data.position() + 1);
+            data.putShort((short) key.length).put(key).putInt(entry.getValue());
+        }
+        data.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(index.duplicate());
+        crc.update(data.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(n).putInt(slotCount)
+                .putInt(HEADER_SIZE + 8 * slotCount).putInt((int) dataLength).putInt((int) crc.getValue()).putInt(0)
+                .flip();
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] buffers = {header, index, data};
+            while (header.hasRemaining() || index.hasRemaining() || data.hasRemaining()) channel.write(buffers);
+            channel.force(true);
+        }
+    }
+
+    // [V] FNV-1a，再混合一下高位，让低位也足够分散.
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) h = (h ^ (b & 0xFF)) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    // [V] 遍历整个文件计算校验和，耗时与文件大小成正比.
+    public void verify() throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(HEADER_SIZE, buf.capacity() - HEADER_SIZE));
+        if ((int) crc.getValue() != crc32)
+            throw new IOException("Snapshot checksum mismatch");
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof String)) return null;
+        byte[] query = ((String) key).getBytes(StandardCharsets.UTF_8);
+        int hash = hash(query);
+
+        // [V] 先比较索引中的散列值，相同时才去数据区逐字节比较，不创建 String.
+        // [V] 写入时保证至少有一个空槽；文件损坏时索引可能被填满，所以最多探测 mask + 1 次.
+        for (int probe = 0, slot = hash & mask; probe <= mask; probe++, slot = (slot + 1) & mask) {
+            int offset = buf.getInt(HEADER_SIZE + 8 * slot + 4);
+            if (offset == 0) return null;
+            if (buf.getInt(HEADER_SIZE + 8 * slot) == hash) {
+                if (offset < 0 || offset - 1 >= dataLength) throw corrupted();
+                // 放不下这个长度的键的条目不可能匹配，也就不必去读它.
+                int entry = dataOffset + offset - 1;
+                if (offset - 1 + 2L + query.length + 4 <= dataLength && matches(entry, query))
+                    return buf.getInt(entry + 2 + query.length);
+            }
+        }
+        throw corrupted();
+    }
+
+    // [V] get() 只在读到越界的偏移或探测不到空槽时才发现损坏，具体原因交给 verify().
+    private static IllegalStateException corrupted() {
+        return new IllegalStateException("Corrupted snapshot index, run verify() for details");
+    }
+
+    private boolean matches(int entry, byte[] query) {
+        if (Short.toUnsignedInt(buf.getShort(entry)) != query.length) return false;
+        for (int i = 0; i < query.length; i++) {
+            if (buf.get(entry + 2 + i) != query[i]) return false;
+        }
+        return true;
+    }
+
+    // [V] keys() 与 elements() 按数据区中的存放顺序遍历，两者的顺序一致.
+    private abstract class EntryEnumeration<T> implements Enumeration<T> {
+        private int entry = dataOffset;
+
+        @Override
+        public boolean hasMoreElements() {
+            return entry < dataOffset + dataLength;
+        }
+
+        @Override
+        public T nextElement() {
+            if (!hasMoreElements()) throw new NoSuchElementException();
+            int length = Short.toUnsignedInt(buf.getShort(entry));
+            T element = read(entry + 2, length);
+            entry += 2 + length + 4;
+            return element;
+        }
+
+        abstract T read(int key, int length);
+    }
+
+    @Override
+    public Enumeration<String> keys() {
+        return new EntryEnumeration<>() {
+            @Override
+            String read(int key, int length) {
+                byte[] bytes = new byte[length];
+                buf.get(key, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    @Override
+    public Enumeration<Integer> elements() {
+        return new EntryEnumeration<>() {
+            @Override
+            Integer read(int key, int length) {
+                return buf.getInt(key + length);
+            }
+        };
+    }
+
+    // 快照是只读的.
+    @Override
+    public Integer put(String key, Integer value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    // 用法：MappedDictionary build <word-list> <snapshot>
+    //      MappedDictionary bench <word-list> <snapshot>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: MappedDictionary <build|bench> <word-list> <snapshot>");
+            return;
+        }
+
+        Path wordList = Path.of(args[1]);
+        Path snapshot = Path.of(args[2]);
+        if ("build".equals(args[0])) {
+            Hashtable<String, Integer> words = SpellCheckServer.loadWords(wordList);
+            write(words, snapshot);
+            MappedDictionary dictionary = open(snapshot);
+            dictionary.verify();
+            System.out.printf("Wrote %d words to %s%n", dictionary.size(), snapshot);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Hashtable<String, Integer> hashtable = SpellCheckServer.loadWords(wordList);
+        long rebuild = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        MappedDictionary mapped = open(snapshot);
+        long opened = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        mapped.verify();
+        long verified = System.nanoTime() - start;
+
+        System.out.printf("Hashtable rebuild: %10.3f ms (%d words)%n", rebuild / 1e6, hashtable.size());
+        System.out.printf("Snapshot open:     %10.3f ms%n", opened / 1e6);
+        System.out.printf("Snapshot verify:   %10.3f ms%n", verified / 1e6);
+
+        String[] probes = hashtable.keySet().toArray(new String[0]);
+        Collections.shuffle(Arrays.asList(probes), new Random(42));
+        int n = Math.min(probes.length, 1_000_000);
+        int[] expected = new int[n];
+        for (int i = 0; i < n; i++) expected[i] = hashtable.get(probes[i]);
+
+        for (Dictionary<String, Integer> dictionary : List.of(hashtable, mapped, hashtable, mapped)) {
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (dictionary.get(probes[i]) != expected[i])
+                    throw new AssertionError("Mismatch for " + probes[i]);
+            }
+            System.out.printf("%-18s %10.1f ns/lookup%n", dictionary.getClass().getSimpleName() + ":",
+                    (System.nanoTime() - start) / (double) n);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.hydev.chapter_2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+// [V] 第 5 条中 Mosaic create(Supplier<? extends Tile> tileFactory) 的实现.
+// [V] 每块瓷砖只保存为 int 数组中的一个 RGB 值，而不是一个对象；Tile 只在生成时短暂存在.
+public final class Mosaic {
+    // [V] 每个子任务至少处理这么多块瓷砖，否则任务调度的开销会超过生成本身.
+    private static final int THRESHOLD = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int[] raster;
+
+    private Mosaic(int width, int height) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.raster = new int[width * height];
+    }
+
+    // 按行优先的顺序，依次向工厂请求每一块瓷砖.
+    public static Mosaic create(int width, int height, Supplier<? extends Tile> tileFactory) {
+        Mosaic mosaic = new Mosaic(width, height);
+        mosaic.fill(0, mosaic.raster.length, tileFactory);
+        return mosaic;
+    }
+
+    // [V] 并行版本：网格被切分为若干区域，交给 ForkJoinPool 以工作窃取的方式处理.
+    // [V] 传入的是 "工厂的工厂"，每个工作线程第一次用到时创建自己的工厂，所以工厂可以是有状态的，而无需同步.
+    // [V] 代价是瓷砖的生成顺序不再确定，这对随机或与位置无关的工厂没有影响.
+    public static Mosaic create(int width, int height, Supplier<? extends Supplier<? extends Tile>> factoryPerWorker,
+                                ForkJoinPool pool) {
+        Mosaic mosaic = new Mosaic(width, height);
+        ThreadLocal<Supplier<? extends Tile>> factories = ThreadLocal.withInitial(factoryPerWorker);
+        pool.invoke(mosaic.new Region(0, mosaic.raster.length, factories));
+        return mosaic;
+    }
+
+    private void fill(int from, int to, Supplier<? extends Tile> tileFactory) {
+        int[] raster = this.raster;
+        for (int i = from; i < to; i++)
+            raster[i] = tileFactory.get().rgb();
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int rgb(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            throw new IndexOutOfBoundsException(x + "," + y);
+        return raster[y * width + x];
+    }
+
+    public interface Tile {
+        int rgb();
+    }
+
+    private final class Region extends RecursiveAction {
+        // [V] RecursiveAction 实现了 Serializable，但 Region 从不会被序列化.
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final ThreadLocal<Supplier<? extends Tile>> factories;
+
+        Region(int from, int to, ThreadLocal<Supplier<? extends Tile>> factories) {
+            this.from = from;
+            this.to = to;
+            this.factories = factories;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                fill(from, to, factories.get());
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new Region(from, mid, factories), new Region(mid, to, factories));
+        }
+    }
+
+    // [V] 一个有状态的工厂：用 xorshift 生成随机颜色，不是线程安全的.
+    private static final class RandomTiles implements Supplier<Tile> {
+        private int seed = (int) System.nanoTime() | 1;
+
+        @Override
+        public Tile get() {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            int rgb = seed & 0xFFFFFF;
+            return () -> rgb;
+        }
+    }
+
+    // 用法：Mosaic [width] [height]，默认 10000 x 10000 = 1 亿块瓷砖.
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        long sequential = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            create(width, height, new RandomTiles());
+            sequential = Math.min(sequential, System.nanoTime() - start);
+        }
+        System.out.printf("sequential  %8.1f ms%n", sequential / 1e6);
+
+        double base = 0;
+        for (int parallelism = 1; ; parallelism = Math.min(parallelism * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                create(width, height, RandomTiles::new, pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+
+            if (parallelism == 1) base = best;
+            System.out.printf("%2d workers  %8.1f ms  %5.2fx%n", parallelism, best / 1e6, base / best);
+            if (parallelism == cores) break;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.hydev.chapter_2;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// [V] Roaring 风格的压缩位图：按整数的高 16 位分块，每块是一个容器.
+// [V] 元素少于 4096 个时用有序的 char 数组，否则用 1024 个 long 的位图（8 KB）；两种表示中都取较小者.
+// [V] 只支持按升序追加，这正好符合只追加的订单存储；集合运算都返回新的位图，不修改操作数.
+final class RoaringBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size = 0;
+    private int last = -1;
+
+    // x 必须大于之前追加的所有元素.
+    void append(int x) {
+        if (x <= last)
+            throw new IllegalArgumentException("Not ascending: " + x + " after " + last);
+        last = x;
+
+        char key = (char) (x >>> 16);
+        if (size == 0 || keys[size - 1] != key) add(key, new ArrayContainer(new char[8], 0));
+        containers[size - 1] = containers[size - 1].append((char) x);
+    }
+
+    private void add(char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++)
+            cardinality += containers[i].cardinality;
+        return cardinality;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            containers[i].forEach(keys[i] << 16, action);
+    }
+
+    // [V] 运算结果是只读的：把 last 设为最大值，之后的 append 都会失败.
+    private static RoaringBitmap result() {
+        RoaringBitmap result = new RoaringBitmap();
+        result.last = Integer.MAX_VALUE;
+        return result;
+    }
+
+    RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = result();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else result.addIfNotEmpty(keys[i], containers[i++].and(other.containers[j++]));
+        }
+        return result;
+    }
+
+    RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = result();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) result.add(keys[i], containers[i++].copy());
+            else if (i == size || keys[i] > other.keys[j]) result.add(other.keys[j], other.containers[j++].copy());
+            else result.add(keys[i], containers[i++].or(other.containers[j++]));
+        }
+        return result;
+    }
+
+    RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = result();
+        int i = 0, j = 0;
+        while (i < size) {
+            if (j == other.size || keys[i] < other.keys[j]) result.add(keys[i], containers[i++].copy());
+            else if (keys[i] > other.keys[j]) j++;
+            else result.addIfNotEmpty(keys[i], containers[i++].andNot(other.containers[j++]));
+        }
+        return result;
+    }
+
+    private void addIfNotEmpty(char key, Container container) {
+        if (container.cardinality > 0) add(key, container);
+    }
+
+    private abstract static class Container {
+        int cardinality;
+
+        abstract Container append(char value);
+
+        // [V] 原样进入结果的容器也要复制，否则操作数之后的 append 会改变已经算出的结果.
+        abstract Container copy();
+
+        abstract boolean contains(char value);
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        // [V] 位图运算之后，根据基数选择更紧凑的表示.
+        static Container of(long[] words) {
+            int cardinality = 0;
+            for (long word : words) cardinality += Long.bitCount(word);
+            if (cardinality > ARRAY_MAX) return new BitmapContainer(words, cardinality);
+
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1)
+                    values[n++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container append(char value) {
+            if (cardinality == ARRAY_MAX) {
+                BitmapContainer bitmap = new BitmapContainer(toWords(), cardinality);
+                return bitmap.append(value);
+            }
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            values[cardinality++] = value;
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++)
+                action.accept(high | values[i]);
+        }
+
+        long[] toWords() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++)
+                words[values[i] >>> 6] |= 1L << values[i];
+            return words;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer that = (ArrayContainer) other;
+                for (int i = 0, j = 0; i < cardinality && j < that.cardinality; ) {
+                    if (values[i] < that.values[j]) i++;
+                    else if (values[i] > that.values[j]) j++;
+                    else {
+                        result[n++] = values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++)
+                    if (other.contains(values[i])) result[n++] = values[i];
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+
+            ArrayContainer that = (ArrayContainer) other;
+            if (cardinality + that.cardinality > ARRAY_MAX) {
+                long[] words = toWords();
+                for (int j = 0; j < that.cardinality; j++)
+                    words[that.values[j] >>> 6] |= 1L << that.values[j];
+                return Container.of(words);
+            }
+
+            char[] result = new char[cardinality + that.cardinality];
+            int i = 0, j = 0, n = 0;
+            while (i < cardinality || j < that.cardinality) {
+                if (j == that.cardinality || (i < cardinality && values[i] < that.values[j])) result[n++] = values[i++];
+                else if (i == cardinality || values[i] > that.values[j]) result[n++] = that.values[j++];
+                else {
+                    result[n++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, n);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int n = 0;
+            for (int i = 0; i < cardinality; i++)
+                if (!other.contains(values[i])) result[n++] = values[i];
+            return new ArrayContainer(result, n);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container append(char value) {
+            words[value >>> 6] |= 1L << value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1)
+                    action.accept(high | (w * 64 + Long.numberOfTrailingZeros(word)));
+            }
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+
+            long[] that = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) result[w] = words[w] & that[w];
+            return Container.of(result);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer that = (ArrayContainer) other;
+                for (int j = 0; j < that.cardinality; j++)
+                    result[that.values[j] >>> 6] |= 1L << that.values[j];
+            } else {
+                long[] that = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) result[w] |= that[w];
+            }
+            return Container.of(result);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer that = (ArrayContainer) other;
+                for (int j = 0; j < that.cardinality; j++)
+                    result[that.values[j] >>> 6] &= ~(1L << that.values[j]);
+            } else {
+                long[] that = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) result[w] &= ~that[w];
+            }
+            return Container.of(result);
+        }
+    }
+}
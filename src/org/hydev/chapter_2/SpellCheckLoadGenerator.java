@@ -0,0 +1,123 @@
+package org.hydev.chapter_2;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// [V] SpellCheckServer 的本地压测工具：在同一进程内交替以平台线程和虚拟线程模式启动服务端，
+// [V] 用大量并发连接流水线式地发送请求，报告吞吐量和 p99 延迟.
+// [V] 第一轮只用于预热 JIT，不报告；之后两种模式交替重复 passes 轮，避免先跑的模式总是吃亏.
+// [V] 运行时不支持虚拟线程（Java 21 之前）时只测平台线程模式.
+// [V] 一万个连接需要足够大的文件描述符上限，例如先执行 ulimit -n 65536.
+public class SpellCheckLoadGenerator {
+    private static final int WORDS = 100_000;
+
+    // 用法：SpellCheckLoadGenerator [connections] [rounds] [pipeline-depth] [passes]
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int passes = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        Hashtable<String, Integer> dictionary = new Hashtable<>();
+        for (int i = 0; i < WORDS; i++) dictionary.put("word" + i, i);
+        Item_5.SpellChecker checker = new Item_5().new SpellChecker(dictionary);
+
+        boolean[] modes = SpellCheckServer.virtualThreadsAvailable() ? new boolean[]{false, true} : new boolean[]{false};
+        if (modes.length == 1)
+            System.out.println("Virtual threads are unavailable, measuring platform threads only. ");
+
+        for (int pass = 0; pass <= passes; pass++) {
+            for (boolean virtual : modes) {
+                Path socket = Files.createTempDirectory("spell-check").resolve("server.sock");
+                try (SpellCheckServer server = new SpellCheckServer(checker, UnixDomainSocketAddress.of(socket), virtual)) {
+                    String mode = server.isVirtual() ? "virtual" : "platform";
+                    run(pass == 0 ? mode + " (warm-up)" : mode + " #" + pass,
+                            pass == 0, server.getLocalAddress(), connections, rounds, depth);
+                }
+            }
+        }
+    }
+
+    private static void run(String mode, boolean warmUp, SocketAddress address, int connections, int rounds,
+                            int depth) throws InterruptedException {
+        // [V] 每个连接记录 rounds * depth 个请求的延迟（纳秒）.
+        long[][] latencies = new long[connections][];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(connections);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(connections);
+
+        ExecutorService clients = SpellCheckServer.newExecutor(true);
+        for (int c = 0; c < connections; c++) {
+            int id = c;
+            clients.execute(() -> {
+                // [V] drive() 失败时连接已经 countDown 过 ready，不能再减一次，否则 ready 会提前放行.
+                boolean counted = false;
+                try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                    channel.connect(address);
+                    BufferedReader in = new BufferedReader(new InputStreamReader(
+                            Channels.newInputStream(channel), StandardCharsets.UTF_8));
+                    Writer out = new BufferedWriter(new OutputStreamWriter(
+                            Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+                    ready.countDown();
+                    counted = true;
+                    start.await();
+                    latencies[id] = drive(in, out, id, rounds, depth);
+                } catch (IOException | InterruptedException e) {
+                    failures.incrementAndGet();
+                    if (!counted) ready.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        clients.shutdown();
+        if (warmUp) return;
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (all.length == 0) {
+            System.out.printf("%-20s all %d connections failed%n", mode, connections);
+            return;
+        }
+        System.out.printf("%-20s %d connections (%d failed), %.0f req/s, p50 %.2f ms, p99 %.2f ms%n",
+                mode, connections, failures.get(), all.length * 1e9 / elapsed,
+                all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6);
+    }
+
+    private static long[] drive(BufferedReader in, Writer out, int id, int rounds, int depth) throws IOException {
+        long[] latencies = new long[rounds * depth];
+        for (int r = 0; r < rounds; r++) {
+            // [V] 一次写出 depth 个请求，再依次读取响应；每个请求的延迟都从整批发送开始计算.
+            long sent = System.nanoTime();
+            for (int d = 0; d < depth; d++) {
+                out.write("word" + ((id * 31 + r * depth + d) % (WORDS * 2)));
+                out.write('\n');
+            }
+            out.flush();
+
+            for (int d = 0; d < depth; d++) {
+                if (in.readLine() == null) throw new EOFException();
+                latencies[r * depth + d] = System.nanoTime() - sent;
+            }
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,226 @@
+package org.hydev.chapter_2;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+// [V] 把第 5 条的 SpellChecker 作为独立的服务运行.
+// [V] 协议是按行的文本：客户端每行发送一个单词，服务端按相同顺序每行返回词典中的值，不存在时返回 "-".
+// [V] 客户端不必等待响应就可以连续发送多个请求（流水线），服务端在读完缓冲区中的一批请求后才统一 flush.
+public final class SpellCheckServer implements Closeable {
+    private static final int MAX_BATCH = 1024;
+    private static final Lookup POISON = new Lookup(null);
+
+    private final Item_5.SpellChecker checker;
+    private final ServerSocketChannel server;
+    private final ExecutorService connections;
+    private final boolean virtual;
+    private final BlockingQueue<Lookup> pending = new LinkedBlockingQueue<>();
+    private final Thread acceptor;
+    private final Thread batcher;
+    private volatile boolean closed;
+
+    public SpellCheckServer(Item_5.SpellChecker checker, SocketAddress address, boolean virtual) throws IOException {
+        this.checker = checker;
+        this.server = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+        this.server.bind(address, 4096);
+        this.virtual = virtual && virtualThreadsAvailable();
+        this.connections = newExecutor(this.virtual);
+
+        this.batcher = new Thread(this::batchLoop, "spell-check-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+
+        this.acceptor = new Thread(this::acceptLoop, "spell-check-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    // [V] 虚拟线程在 Java 21 才正式发布；为了能在更早的 JDK 上编译，这里通过反射获取工厂方法.
+    // [V] 运行时不支持虚拟线程时，退回到每个连接一个平台线程；调用方应先用 virtualThreadsAvailable() 确认实际的模式.
+    static ExecutorService newExecutor(boolean virtual) {
+        if (virtual && virtualThreadsAvailable()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    // [V] Java 19、20 中虚拟线程是预览特性，未开启 --enable-preview 时调用会抛出 UnsupportedOperationException.
+    static boolean virtualThreadsAvailable() {
+        try {
+            ((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)).shutdown();
+            return true;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    // 连接实际上是否由虚拟线程处理.
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // 支持 "unix:/path/to/socket"、"host:port" 和单独的端口号.
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:"))
+            return UnixDomainSocketAddress.of(address.substring("unix:".length()));
+
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) return new InetSocketAddress("127.0.0.1", Integer.parseInt(address));
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    public SocketAddress getLocalAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                // 服务端已关闭.
+                return;
+            } catch (IOException e) {
+                // [V] 例如文件描述符耗尽（Too many open files），稍后重试，而不是让整个服务停止接受连接.
+                System.err.println("Accept failed: " + e.getMessage());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+            ArrayDeque<Lookup> inFlight = new ArrayDeque<>();
+            String word;
+            while ((word = in.readLine()) != null) {
+                Lookup lookup = new Lookup(word);
+                pending.add(lookup);
+                // [V] 关闭后批处理线程不再运行，排在 POISON 之后的查询永远不会完成；join() 又不响应中断，这里必须自己结束它.
+                if (closed) lookup.completeExceptionally(new ClosedChannelException());
+                inFlight.add(lookup);
+
+                // [V] 缓冲区中还有请求时继续读取，让它们进入同一批次；读完后按顺序写回全部响应.
+                if (!in.ready()) {
+                    while (!inFlight.isEmpty()) {
+                        Integer value = inFlight.poll().join();
+                        out.write(value == null ? "-" : value.toString());
+                        out.write('\n');
+                    }
+                    out.flush();
+                }
+            }
+        } catch (IOException | CompletionException e) {
+            // 客户端断开连接，或者服务端已关闭.
+        }
+    }
+
+    // [V] 单个线程收集并发到达的查询，每批只对词典做一遍查询.
+    private void batchLoop() {
+        List<Lookup> batch = new ArrayList<>(MAX_BATCH);
+        String[] words = new String[MAX_BATCH];
+        Integer[] results = new Integer[MAX_BATCH];
+        try {
+            while (true) {
+                batch.add(pending.take());
+                pending.drainTo(batch, MAX_BATCH - 1);
+
+                int count = 0;
+                boolean stop = false;
+                for (Lookup lookup : batch) {
+                    if (lookup == POISON) stop = true;
+                    else words[count++] = lookup.word;
+                }
+
+                checker.lookupAll(words, results, count);
+                count = 0;
+                for (Lookup lookup : batch) {
+                    if (lookup != POISON) lookup.complete(results[count++]);
+                }
+
+                batch.clear();
+                if (stop) {
+                    // [V] 在 close() 设置 closed 之前入队的查询都排在 POISON 之前，已经处理完；之后入队的在这里结束.
+                    for (Lookup lookup; (lookup = pending.poll()) != null; )
+                        lookup.completeExceptionally(new ClosedChannelException());
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        SocketAddress address = server.getLocalAddress();
+        server.close();
+        closed = true;
+        pending.add(POISON);
+        connections.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress)
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+
+    static Hashtable<String, Integer> loadWords(Path wordList) throws IOException {
+        Hashtable<String, Integer> dictionary = new Hashtable<>();
+        try (BufferedReader reader = Files.newBufferedReader(wordList)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) dictionary.put(line, dictionary.size());
+            }
+        }
+        return dictionary;
+    }
+
+    // 用法：SpellCheckServer <platform|virtual> <address> <word-list | snapshot.ejds>
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: SpellCheckServer <platform|virtual> <address> <word-list | snapshot.ejds>");
+            return;
+        }
+
+        // [V] MappedDictionary 快照无需重建散列表，节点重启后可以立即提供服务.
+        Path words = Path.of(args[2]);
+        Dictionary<String, Integer> dictionary = words.toString().endsWith(".ejds")
+                ? MappedDictionary.open(words) : loadWords(words);
+        Item_5.SpellChecker checker = new Item_5().new SpellChecker(dictionary);
+        try (SpellCheckServer server = new SpellCheckServer(checker, parseAddress(args[1]), "virtual".equals(args[0]))) {
+            System.out.println("Listening on " + server.getLocalAddress());
+            server.acceptor.join();
+        }
+    }
+
+    private static final class Lookup extends CompletableFuture<Integer> {
+        final String word;
+
+        Lookup(String word) {
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.hydev.chapter_3;
+
+import org.hydev.bench.Benchmark;
+import org.hydev.bench.Blackhole;
+
+import java.util.Objects;
+
+// [V] 第 3 章各条中性能结论的基准，由 org.hydev.bench.BenchmarkRunner 运行.
+public class Benchmarks {
+    // 与 Item_10.PhoneNumber 相同的三个域.
+    private short areaCode = 707, prefix = 867, lineNum = 5309;
+
+    // 第 11 条：按步骤手工组合各个域的散列码.
+    @Benchmark
+    public void item11ManualHash(Blackhole bh) {
+        int result = Short.hashCode(areaCode);
+        result = 31 * result + Short.hashCode(prefix);
+        result = 31 * result + Short.hashCode(lineNum);
+        bh.consume(result);
+    }
+
+    // 第 11 条：Objects.hash 需要创建可变参数数组，并把基本类型装箱.
+    @Benchmark
+    public void item11ObjectsHash(Blackhole bh) {
+        bh.consume(Objects.hash(areaCode, prefix, lineNum));
+    }
+}
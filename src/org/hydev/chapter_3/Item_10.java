@@ -1,5 +1,9 @@
 package org.hydev.chapter_3;
 
+import org.hydev.chapter_2.BinaryCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -161,9 +165,56 @@ public class Item_10 {
 
     // 在编写完 equals 方法之后，应该问自己三个问题：它是否是对称的、传递的、一致的？并且不要只是自问，还要编写单元测试来检验这些特性.
     // 根据上面的诀窍构建 equals 方法的具体例子. 请看下面这个简单的 PhoneNumber 类：
-    public static final class PhoneNumber {
+    public static final class PhoneNumber implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        // [V] BinaryCodec 的编解码器；解码时经过构造器，所以 rangeCheck 依旧生效.
+        public static final BinaryCodec.Codec<PhoneNumber> CODEC = new BinaryCodec.Codec<>() {
+            @Override
+            public void write(PhoneNumber value, ByteBuffer buf) {
+                BinaryCodec.writeVarInt(value.areaCode, buf);
+                BinaryCodec.writeVarInt(value.prefix, buf);
+                BinaryCodec.writeVarInt(value.lineNum, buf);
+            }
+
+            @Override
+            public PhoneNumber read(ByteBuffer buf) {
+                return new PhoneNumber((short) BinaryCodec.readVarInt(buf),
+                        (short) BinaryCodec.readVarInt(buf), (short) BinaryCodec.readVarInt(buf));
+            }
+        };
+
         private final short areaCode, prefix, lineNum;
 
+        // [V] 仅用于 BinaryCodec 中的对比：手写 writeExternal 直接写出各个域，省掉了域描述，但类描述符仍然要写.
+        public static final class Externalized implements Externalizable {
+            private static final long serialVersionUID = 1L;
+            private PhoneNumber value;
+
+            public Externalized() {
+            }
+
+            public Externalized(PhoneNumber value) {
+                this.value = value;
+            }
+
+            public PhoneNumber get() {
+                return value;
+            }
+
+            @Override
+            public void writeExternal(ObjectOutput out) throws IOException {
+                out.writeShort(value.areaCode);
+                out.writeShort(value.prefix);
+                out.writeShort(value.lineNum);
+            }
+
+            @Override
+            public void readExternal(ObjectInput in) throws IOException {
+                value = new PhoneNumber(in.readShort(), in.readShort(), in.readShort());
+            }
+        }
+
         public PhoneNumber(short areaCode, short prefix, short lineNum) {
             this.areaCode = rangeCheck(areaCode, 999, "area code");
             this.prefix = rangeCheck(prefix, 999, "prefix");
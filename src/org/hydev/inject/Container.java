@@ -0,0 +1,13 @@
+package org.hydev.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 标记一个接口，它的每个无参抽象方法都返回一个需要注入的对象.
+// [V] InjectProcessor 在编译期为接口 Foo 生成同一个包中的 GeneratedFoo，其中是手写风格的构造代码，没有反射.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Container {
+}
@@ -0,0 +1,12 @@
+package org.hydev.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 标记由注入器调用的构造器；构造器的参数即依赖，参数类型为 Supplier<T> 时注入 T 的工厂（第 5 条）.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface Inject {
+}
@@ -0,0 +1,121 @@
+package org.hydev.inject;
+
+import org.hydev.chapter_2.Item_5;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.function.Supplier;
+
+// [V] 对比手工装配、编译期生成（InjectProcessor）和反射（ReflectiveInjector）三种方式的容器启动耗时与单次注入开销.
+// [V] 需要先用 InjectProcessor 处理本文件，生成 GeneratedSpellCheckContainer：
+// [V]   javac -d out src/org/hydev/inject/*.java ... （先编译注解与处理器）
+// [V]   javac -d out -cp out -processorpath out -processor org.hydev.inject.InjectProcessor <全部源文件>
+// [V] 启动耗时只有在每种方式单独运行一个 JVM 时才准确，所以用参数选择方式：hand | generated | reflective.
+public class InjectBenchmark {
+    private static final String GENERATED = "org.hydev.inject.GeneratedSpellCheckContainer";
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        String mode = args.length > 0 ? args[0] : "generated";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+        long start = System.nanoTime();
+        SpellCheckContainer container;
+        switch (mode) {
+            case "hand":
+                container = new HandWiredContainer();
+                break;
+            case "generated":
+                // [V] 生成的类在编译期才存在，这里只有取得类对象这一次反射；之后的注入都是普通的方法调用.
+                container = (SpellCheckContainer) Class.forName(GENERATED).getDeclaredConstructor().newInstance();
+                break;
+            case "reflective":
+                container = ReflectiveInjector.create(SpellCheckContainer.class);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        SpellCheckService first = container.service();
+        long startup = System.nanoTime() - start;
+
+        if (first.check("effective") != 0 || first.statistics != container.service().statistics)
+            throw new AssertionError("Wrong wiring");
+
+        long checksum = 0;
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                checksum += container.service().hashCode();
+            long elapsed = System.nanoTime() - start;
+            if (round == 4)
+                System.out.printf("%-10s startup %8.3f ms, %8.2f ns/injection (%d)%n",
+                        mode, startup / 1e6, (double) elapsed / iterations, checksum & 1);
+        }
+    }
+
+    @Container
+    interface SpellCheckContainer {
+        @Provides
+        @Singleton
+        static Dictionary<String, Integer> dictionary() {
+            Hashtable<String, Integer> dictionary = new Hashtable<>();
+            dictionary.put("effective", 0);
+            dictionary.put("java", 1);
+            return dictionary;
+        }
+
+        // [V] SpellChecker 是 Item_5 的内部类，无法直接加上 @Inject，所以通过 @Provides 提供.
+        @Provides
+        @Lazy
+        static Item_5.SpellChecker spellChecker(Dictionary<String, Integer> dictionary) {
+            return new Item_5().new SpellChecker(dictionary);
+        }
+
+        SpellCheckService service();
+    }
+
+    @Singleton
+    static final class Statistics {
+        @Inject
+        Statistics() {
+        }
+    }
+
+    // 没有作用域注解，每次注入都是新实例；SpellChecker 通过 Supplier 按需获取.
+    static final class SpellCheckService {
+        private final Supplier<Item_5.SpellChecker> checker;
+        private final Statistics statistics;
+
+        @Inject
+        SpellCheckService(Supplier<Item_5.SpellChecker> checker, Statistics statistics) {
+            this.checker = checker;
+            this.statistics = statistics;
+        }
+
+        Integer check(String word) {
+            return checker.get().lookup(word);
+        }
+    }
+
+    // [V] 对照组：手工写出的装配代码，也就是 InjectProcessor 期望生成的代码.
+    private static final class HandWiredContainer implements SpellCheckContainer {
+        private final Dictionary<String, Integer> dictionary = SpellCheckContainer.dictionary();
+        private final Statistics statistics = new Statistics();
+        private volatile Item_5.SpellChecker checker;
+
+        private Item_5.SpellChecker checker() {
+            Item_5.SpellChecker result = checker;
+            if (result == null) {
+                synchronized (this) {
+                    result = checker;
+                    if (result == null) checker = result = SpellCheckContainer.spellChecker(dictionary);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public SpellCheckService service() {
+            return new SpellCheckService(this::checker, statistics);
+        }
+    }
+}
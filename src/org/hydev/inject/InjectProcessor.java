@@ -0,0 +1,296 @@
+package org.hydev.inject;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.function.Supplier;
+
+// [V] 第 5 条提到的依赖注入框架大多依赖反射，启动慢且占用元空间；这里在编译期生成装配代码.
+// [V] 用法：先编译本包，再以 javac -processorpath <输出目录> -processor org.hydev.inject.InjectProcessor 编译使用方.
+@SupportedAnnotationTypes("org.hydev.inject.Container")
+public final class InjectProcessor extends AbstractProcessor {
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Container.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error("@Container must be placed on an interface", element);
+                continue;
+            }
+
+            try {
+                new Graph((TypeElement) element).generate();
+            } catch (ResolveException e) {
+                error(e.getMessage(), e.element);
+            } catch (IOException e) {
+                error("Cannot write generated container: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private enum Scope {PROTOTYPE, SINGLETON, LAZY}
+
+    private static final class ResolveException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final transient Element element;
+
+        ResolveException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    private static final class Dependency {
+        final String key;
+        final boolean supplier;
+
+        Dependency(String key, boolean supplier) {
+            this.key = key;
+            this.supplier = supplier;
+        }
+    }
+
+    private static final class Binding {
+        final int id;
+        final String type;
+        final ExecutableElement factory;
+        final Scope scope;
+        final List<Dependency> dependencies;
+
+        Binding(int id, String type, ExecutableElement factory, Scope scope, List<Dependency> dependencies) {
+            this.id = id;
+            this.type = type;
+            this.factory = factory;
+            this.scope = scope;
+            this.dependencies = dependencies;
+        }
+    }
+
+    // 一个 @Container 接口的依赖图.
+    private final class Graph {
+        private final Types types = processingEnv.getTypeUtils();
+        private final TypeElement container;
+        private final Map<String, ExecutableElement> provides = new HashMap<>();
+        // [V] 按后序插入，所以每个绑定的直接依赖总是排在它前面，单例可以按此顺序在构造器中初始化.
+        private final Map<String, Binding> bindings = new LinkedHashMap<>();
+        private final Set<String> resolving = new HashSet<>();
+        // [V] Supplier 的目标等到当前入口解析完、resolving 清空之后再解析，这样由 Supplier 打断的环不会被误报.
+        private final Deque<Map.Entry<TypeMirror, Element>> deferred = new ArrayDeque<>();
+
+        Graph(TypeElement container) {
+            this.container = container;
+        }
+
+        void generate() throws ResolveException, IOException {
+            List<ExecutableElement> entryPoints = new ArrayList<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(container.getEnclosedElements())) {
+                if (method.getAnnotation(Provides.class) != null) {
+                    if (!method.getModifiers().contains(Modifier.STATIC))
+                        throw new ResolveException("@Provides method must be static", method);
+                    if (provides.put(method.getReturnType().toString(), method) != null)
+                        throw new ResolveException("Duplicate binding for " + method.getReturnType(), method);
+                } else if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+                    if (!method.getParameters().isEmpty())
+                        throw new ResolveException("Container methods must not take parameters", method);
+                    entryPoints.add(method);
+                }
+            }
+
+            for (ExecutableElement method : entryPoints) {
+                resolve(method.getReturnType(), method);
+                while (!deferred.isEmpty()) {
+                    Map.Entry<TypeMirror, Element> next = deferred.poll();
+                    resolve(next.getKey(), next.getValue());
+                }
+            }
+
+            write(entryPoints);
+        }
+
+        private Binding resolve(TypeMirror type, Element requester) throws ResolveException {
+            String key = type.toString();
+            Binding binding = bindings.get(key);
+            if (binding != null) return binding;
+            if (!resolving.add(key))
+                throw new ResolveException("Dependency cycle through " + key + ", use Supplier<" + key + "> to break it",
+                        requester);
+
+            ExecutableElement factory = provides.get(key);
+            if (factory == null) factory = injectConstructor(type, requester);
+
+            List<Dependency> dependencies = new ArrayList<>();
+            for (VariableElement parameter : factory.getParameters()) {
+                TypeMirror target = supplierTarget(parameter.asType(), parameter);
+                if (target != null) {
+                    // [V] Supplier 依赖在运行时才取值，不参与环检测.
+                    deferred.add(Map.entry(target, parameter));
+                    dependencies.add(new Dependency(target.toString(), true));
+                } else {
+                    resolve(parameter.asType(), parameter);
+                    dependencies.add(new Dependency(parameter.asType().toString(), false));
+                }
+            }
+
+            Element scoped = factory.getKind() == ElementKind.CONSTRUCTOR ? factory.getEnclosingElement() : factory;
+            Scope scope = scoped.getAnnotation(Lazy.class) != null ? Scope.LAZY
+                    : scoped.getAnnotation(Singleton.class) != null ? Scope.SINGLETON : Scope.PROTOTYPE;
+
+            binding = new Binding(bindings.size(), key, factory, scope, dependencies);
+            bindings.put(key, binding);
+            resolving.remove(key);
+            return binding;
+        }
+
+        private ExecutableElement injectConstructor(TypeMirror type, Element requester) throws ResolveException {
+            if (type.getKind() != TypeKind.DECLARED)
+                throw new ResolveException("No binding for " + type, requester);
+
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            if (element.getNestingKind() == NestingKind.MEMBER && !element.getModifiers().contains(Modifier.STATIC))
+                throw new ResolveException(element + " is an inner class, provide it with @Provides instead", requester);
+
+            ExecutableElement found = null;
+            for (ExecutableElement constructor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+                if (constructor.getAnnotation(Inject.class) == null) continue;
+                if (found != null)
+                    throw new ResolveException("More than one @Inject constructor in " + element, constructor);
+                if (constructor.getModifiers().contains(Modifier.PRIVATE))
+                    throw new ResolveException("@Inject constructor must not be private", constructor);
+                found = constructor;
+            }
+
+            if (found == null)
+                throw new ResolveException("No @Inject constructor or @Provides method for " + type, requester);
+            return found;
+        }
+
+        private TypeMirror supplierTarget(TypeMirror type, Element requester) throws ResolveException {
+            if (type.getKind() != TypeKind.DECLARED) return null;
+            DeclaredType declared = (DeclaredType) type;
+            if (!((TypeElement) declared.asElement()).getQualifiedName().contentEquals(Supplier.class.getName()))
+                return null;
+            if (declared.getTypeArguments().size() != 1) return null;
+            TypeMirror target = declared.getTypeArguments().get(0);
+            if (target.getKind() != TypeKind.WILDCARD) return target;
+
+            // [V] Supplier<? extends T> 按 T 的绑定注入；? 和 ? super T 没有唯一的绑定可选.
+            TypeMirror bound = ((WildcardType) target).getExtendsBound();
+            if (bound == null)
+                throw new ResolveException("Cannot inject " + type + ", use Supplier<T> or Supplier<? extends T>",
+                        requester);
+            return bound;
+        }
+
+        // 引用一个绑定的表达式：立即单例直接读域，其余调用 provide 方法.
+        private String reference(Binding binding) {
+            return binding.scope == Scope.SINGLETON ? "instance" + binding.id : "provide" + binding.id + "()";
+        }
+
+        // [V] 立即单例也通过 provide 方法引用：它可能在构造器中排在依赖它的单例之后，lambda 不能捕获尚未赋值的 final 域.
+        private String supplierReference(Binding binding) {
+            return "this::provide" + binding.id;
+        }
+
+        private String create(Binding binding) {
+            StringJoiner arguments = new StringJoiner(", ", "(", ")");
+            for (Dependency dependency : binding.dependencies) {
+                Binding target = bindings.get(dependency.key);
+                arguments.add(dependency.supplier ? supplierReference(target) : reference(target));
+            }
+
+            if (binding.factory.getKind() == ElementKind.CONSTRUCTOR)
+                return "new " + binding.type + arguments;
+            return container.getQualifiedName() + "." + binding.factory.getSimpleName() + arguments;
+        }
+
+        private void write(List<ExecutableElement> entryPoints) throws IOException {
+            String packageName = processingEnv.getElementUtils().getPackageOf(container).getQualifiedName().toString();
+            String name = "Generated" + container.getSimpleName();
+            String visibility = container.getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+
+            String qualifiedName = packageName.isEmpty() ? name : packageName + "." + name;
+            try (PrintWriter out = new PrintWriter(
+                    processingEnv.getFiler().createSourceFile(qualifiedName, container).openWriter())) {
+                if (!packageName.isEmpty()) out.printf("package %s;%n%n", packageName);
+                out.printf("// Generated by %s, do not edit.%n", InjectProcessor.class.getName());
+                out.printf("@javax.annotation.processing.Generated(\"%s\")%n", InjectProcessor.class.getName());
+                out.printf("%sfinal class %s implements %s {%n", visibility, name, container.getQualifiedName());
+
+                for (Binding binding : bindings.values()) {
+                    if (binding.scope == Scope.SINGLETON)
+                        out.printf("    private final %s instance%d;%n", binding.type, binding.id);
+                    else if (binding.scope == Scope.LAZY)
+                        out.printf("    private volatile %s instance%d;%n", binding.type, binding.id);
+                }
+
+                out.printf("%n    %s%s() {%n", visibility, name);
+                for (Binding binding : bindings.values()) {
+                    if (binding.scope == Scope.SINGLETON)
+                        out.printf("        instance%d = %s;%n", binding.id, create(binding));
+                }
+                out.printf("    }%n");
+
+                Set<String> supplied = new HashSet<>();
+                for (Binding binding : bindings.values())
+                    for (Dependency dependency : binding.dependencies)
+                        if (dependency.supplier) supplied.add(dependency.key);
+
+                for (Binding binding : bindings.values()) {
+                    if (binding.scope == Scope.SINGLETON && !supplied.contains(binding.type)) continue;
+
+                    out.printf("%n    private %s provide%d() {%n", binding.type, binding.id);
+                    if (binding.scope == Scope.SINGLETON) {
+                        // [V] 只有在构造器中调用 Supplier#get() 时才可能遇到尚未创建的单例.
+                        out.printf("        if (instance%d == null)%n", binding.id);
+                        out.printf("            throw new IllegalStateException(\"%s is not created yet\");%n",
+                                binding.type);
+                        out.printf("        return instance%d;%n", binding.id);
+                    } else if (binding.scope == Scope.PROTOTYPE) {
+                        out.printf("        return %s;%n", create(binding));
+                    } else {
+                        out.printf("        %s instance = instance%d;%n", binding.type, binding.id);
+                        out.printf("        if (instance == null) {%n");
+                        out.printf("            synchronized (this) {%n");
+                        out.printf("                instance = instance%d;%n", binding.id);
+                        out.printf("                if (instance == null) instance%d = instance = %s;%n",
+                                binding.id, create(binding));
+                        out.printf("            }%n");
+                        out.printf("        }%n");
+                        out.printf("        return instance;%n");
+                    }
+                    out.printf("    }%n");
+                }
+
+                for (ExecutableElement method : entryPoints) {
+                    out.printf("%n    @Override%n");
+                    out.printf("    public %s %s() {%n", method.getReturnType(), method.getSimpleName());
+                    out.printf("        return %s;%n", reference(bindings.get(method.getReturnType().toString())));
+                    out.printf("    }%n");
+                }
+                out.printf("}%n");
+            }
+        }
+    }
+}
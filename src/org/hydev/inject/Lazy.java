@@ -0,0 +1,12 @@
+package org.hydev.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 每个容器只创建一个实例，但推迟到第一次被注入时才创建（双重检查锁）.
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Lazy {
+}
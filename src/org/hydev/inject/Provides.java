@@ -0,0 +1,13 @@
+package org.hydev.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 标记 @Container 接口中的静态方法，为无法加上 @Inject 的类型（例如 Dictionary）提供实例.
+// [V] 方法的参数同样作为依赖注入；可以再加上 @Singleton 或 @Lazy.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Provides {
+}
@@ -0,0 +1,102 @@
+package org.hydev.inject;
+
+import java.lang.reflect.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// [V] 与 InjectProcessor 语义相同、基于反射的注入器，仅作为基准测试中的对照组.
+// [V] 它在运行时扫描注解并通过反射调用构造器，也就是 Guice、Spring 这类框架的做法.
+public final class ReflectiveInjector implements InvocationHandler {
+    private final Map<Type, Method> provides = new HashMap<>();
+    private final Map<Type, Object> singletons = new ConcurrentHashMap<>();
+
+    private ReflectiveInjector(Class<?> container) {
+        for (Method method : container.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(Provides.class)) {
+                method.setAccessible(true);
+                provides.put(method.getGenericReturnType(), method);
+            }
+        }
+    }
+
+    // [V] 用动态代理实现 @Container 接口；@Singleton 在这里也是首次使用时才创建.
+    public static <T> T create(Class<T> container) {
+        return container.cast(Proxy.newProxyInstance(container.getClassLoader(), new Class<?>[]{container},
+                new ReflectiveInjector(container)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return get(method.getGenericReturnType());
+    }
+
+    private Object get(Type type) {
+        Object instance = singletons.get(type);
+        if (instance != null) return instance;
+
+        Method provider = provides.get(type);
+        AnnotatedElement scoped = provider != null ? provider : rawType(type);
+        if (!scoped.isAnnotationPresent(Singleton.class) && !scoped.isAnnotationPresent(Lazy.class))
+            return create(type, provider);
+
+        // [V] computeIfAbsent 不允许在计算过程中递归修改同一个 Map，所以这里先创建再放入.
+        synchronized (this) {
+            instance = singletons.get(type);
+            if (instance == null) {
+                instance = create(type, provider);
+                singletons.put(type, instance);
+            }
+            return instance;
+        }
+    }
+
+    private Object create(Type type, Method provider) {
+        try {
+            if (provider != null)
+                return provider.invoke(null, arguments(provider.getGenericParameterTypes()));
+
+            for (Constructor<?> constructor : rawType(type).getDeclaredConstructors()) {
+                if (constructor.isAnnotationPresent(Inject.class)) {
+                    constructor.setAccessible(true);
+                    return constructor.newInstance(arguments(constructor.getGenericParameterTypes()));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + type, e);
+        }
+        throw new IllegalStateException("No binding for " + type);
+    }
+
+    private Object[] arguments(Type[] parameters) {
+        Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Type parameter = parameters[i];
+            if (parameter instanceof ParameterizedType && ((ParameterizedType) parameter).getRawType() == Supplier.class) {
+                Type target = supplierTarget((ParameterizedType) parameter);
+                arguments[i] = (Supplier<Object>) () -> get(target);
+            } else {
+                arguments[i] = get(parameter);
+            }
+        }
+        return arguments;
+    }
+
+    // [V] 与 InjectProcessor 一致：Supplier<? extends T> 按 T 的绑定注入，? 和 ? super T 直接拒绝.
+    private static Type supplierTarget(ParameterizedType supplier) {
+        Type target = supplier.getActualTypeArguments()[0];
+        if (!(target instanceof WildcardType)) return target;
+
+        WildcardType wildcard = (WildcardType) target;
+        if (wildcard.getLowerBounds().length > 0 || wildcard.getUpperBounds()[0] == Object.class)
+            throw new IllegalStateException("Cannot inject " + supplier + ", use Supplier<T> or Supplier<? extends T>");
+        return wildcard.getUpperBounds()[0];
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) return (Class<?>) type;
+        if (type instanceof ParameterizedType) return (Class<?>) ((ParameterizedType) type).getRawType();
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+}
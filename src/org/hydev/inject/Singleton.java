@@ -0,0 +1,13 @@
+package org.hydev.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// [V] 每个容器只创建一个实例，并在容器构造时立即创建，对应第 3 条中的 "公有静态 final 域".
+// [V] 没有作用域注解的类型，每次注入都会创建新实例.
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Singleton {
+}
@@ -0,0 +1,23 @@
+package org.hydev.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// [V] LongAdder 在竞争时把计数分散到多个 Cell 上，写入几乎不会互相阻塞；读取时才求和.
+public final class Counter {
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public long sum() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,36 @@
+package org.hydev.metrics;
+
+import jdk.jfr.*;
+
+// [V] 与 Metrics 中的指标一一对应的 JFR 事件，在 JDK Mission Control 中按 "Effective Java Notes" 分类显示.
+// [V] 发出事件前先检查 shouldCommit()，没有开启录制时，事件对象通常会被逃逸分析消除.
+public final class Events {
+    private Events() {
+        throw new AssertionError("工具类不应该被实例化. ");
+    }
+
+    @Name("org.hydev.StackGrowth")
+    @Label("Stack Growth")
+    @Category("Effective Java Notes")
+    @Description("Item_7.Stack#ensureCapacity copied its element array")
+    public static final class StackGrowth extends Event {
+        @Label("Old Capacity")
+        public int oldCapacity;
+
+        @Label("New Capacity")
+        public int newCapacity;
+    }
+
+    @Name("org.hydev.RoomCleanup")
+    @Label("Room Cleanup")
+    @Category("Effective Java Notes")
+    @Description("A Room's State was cleaned, either by close() or by the Cleaner")
+    public static final class RoomCleanup extends Event {
+        @Label("By Close")
+        public boolean byClose;
+
+        @Label("Lifetime")
+        @Timespan
+        public long lifetime;
+    }
+}
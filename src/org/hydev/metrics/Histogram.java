@@ -0,0 +1,75 @@
+package org.hydev.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// [V] HDR 风格的对数线性直方图：每个 2 的幂区间再等分为 32 个桶，相对误差不超过 1/32.
+// [V] 记录只是一次桶下标计算加一次原子自增，无锁；数值必须是非负的 long（例如纳秒）.
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    Histogram() {
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // 桶的下界.
+    static long valueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    public void record(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value: " + value);
+        counts.incrementAndGet(bucketOf(value));
+    }
+
+    // [V] 读取时不加锁，所以并发写入下得到的是一个近似的快照.
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += copy[i] = counts.get(i);
+        return new Snapshot(copy, total);
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts, long count) {
+            this.counts = counts;
+            this.count = count;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        // quantile 取值 [0, 1]；没有数据时返回 0.
+        public long percentile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) return valueOf(i);
+            }
+            return 0;
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--)
+                if (counts[i] > 0) return valueOf(i);
+            return 0;
+        }
+    }
+}
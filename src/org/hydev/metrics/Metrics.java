@@ -0,0 +1,97 @@
+package org.hydev.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+// [V] 笔记中各个机制的运行时指标：计数器、直方图和计量（gauge），以及对应的 JFR 事件（见 Events）.
+// [V] 埋点的写法统一为 if (Metrics.ENABLED) { ... }. ENABLED 是 static final 常量，
+// [V] 关闭时 JIT 会把整个分支当作死代码消除；即使在解释执行时，也只是一次可预测的分支.
+// [V] 通过 -Dorg.hydev.metrics=true 开启.
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("org.hydev.metrics");
+
+    // [V] 按名称排序，导出的结果稳定，便于比较.
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+        throw new AssertionError("工具类不应该被实例化. ");
+    }
+
+    // [V] 同名的指标只创建一次；应当在静态域中保存返回值，而不是每次都按名称查找.
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    // 计量在导出时才求值.
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static void writeText(Appendable out) {
+        try {
+            for (Map.Entry<String, Counter> entry : COUNTERS.entrySet())
+                out.append(String.format("counter   %-32s %d%n", entry.getKey(), entry.getValue().sum()));
+            for (Map.Entry<String, LongSupplier> entry : GAUGES.entrySet())
+                out.append(String.format("gauge     %-32s %d%n", entry.getKey(), entry.getValue().getAsLong()));
+            for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+                Histogram.Snapshot s = entry.getValue().snapshot();
+                out.append(String.format("histogram %-32s count=%d p50=%d p99=%d p999=%d max=%d%n", entry.getKey(),
+                        s.count(), s.percentile(0.5), s.percentile(0.99), s.percentile(0.999), s.max()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void writeJson(Appendable out) {
+        try {
+            out.append("{\"counters\":{");
+            String separator = "";
+            for (Map.Entry<String, Counter> entry : COUNTERS.entrySet()) {
+                out.append(separator).append(quote(entry.getKey())).append(':')
+                        .append(Long.toString(entry.getValue().sum()));
+                separator = ",";
+            }
+
+            out.append("},\"gauges\":{");
+            separator = "";
+            for (Map.Entry<String, LongSupplier> entry : GAUGES.entrySet()) {
+                out.append(separator).append(quote(entry.getKey())).append(':')
+                        .append(Long.toString(entry.getValue().getAsLong()));
+                separator = ",";
+            }
+
+            out.append("},\"histograms\":{");
+            separator = "";
+            for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+                Histogram.Snapshot s = entry.getValue().snapshot();
+                out.append(separator).append(quote(entry.getKey())).append(String.format(
+                        ":{\"count\":%d,\"p50\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d}", s.count(),
+                        s.percentile(0.5), s.percentile(0.99), s.percentile(0.999), s.max()));
+                separator = ",";
+            }
+            out.append("}}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+}